@@ -0,0 +1,98 @@
+// BilinearBenchmark.java
+// -- times the bilinear gradient kernels on one thread, so only the per-pixel work differs
+//    - double: the original double-stepping loop (BilinearRenderer.renderRow())
+//    - fixed: FixedPointKernel, Q22 ints
+//    - vector: simd.VectorKernel, if it was compiled and the JVM was started with
+//      --add-modules jdk.incubator.vector
+//    - checks every kernel against the double path and reports the largest channel difference,
+//      which must stay within one step (1/255)
+//    - the gradient runs between random corner colors, seeded, so the results repeat
+//    - a few warmup renders per kernel, then every render is timed (see Benchmark)
+//
+// usage: java [--add-modules jdk.incubator.vector] BilinearBenchmark [size] [repeats]   (default 4096, 10)
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BilinearBenchmark {
+	private static final long SEED = 42L;
+	private static final int WARMUP = 3;
+
+	public static void main(String[] args) {
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+		int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		Random rand = new Random(SEED);
+		BilinearRenderer renderer = new BilinearRenderer(rand.nextInt(), rand.nextInt(), rand.nextInt(), rand.nextInt());
+		ForkJoinPool pool = new ForkJoinPool(1);
+
+		BufferedImage reference = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Benchmark.Result result = Benchmark.measure(new Render(renderer, pool, null, reference), WARMUP, repeats);
+		double doubleRate = Benchmark.mean(result.rates(size*(size/1e6)));
+		long checksum = result.checksum();
+		System.out.printf("%-20s %12s %8s %10s%n", "kernel", "Mpixels/s", "speedup", "max diff");
+		System.out.printf("%-20s %12.1f %7.2fx %10d%n", "double", doubleRate, 1.0, 0);
+
+		RowKernel fastest = BilinearRenderer.fastestKernel();
+		RowKernel[] kernels = (fastest instanceof FixedPointKernel)
+			? new RowKernel[] { fastest }
+			: new RowKernel[] { new FixedPointKernel(), fastest };
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		for (RowKernel kernel : kernels) {
+			result = Benchmark.measure(new Render(renderer, pool, kernel, image), WARMUP, repeats);
+			double rate = Benchmark.mean(result.rates(size*(size/1e6)));
+			checksum += result.checksum();
+			System.out.printf("%-20s %12.1f %7.2fx %10d%n", (kernel instanceof FixedPointKernel) ? "FixedPointKernel" : kernel.toString(),
+			                  rate, rate/doubleRate, maxDifference(reference, image));
+		}
+		if (fastest instanceof FixedPointKernel) {
+			System.out.println("(simd.VectorKernel not loaded, see simd/VectorKernel.java)");
+		}
+		System.out.println("checksum " + checksum);
+		pool.shutdown();
+	}
+
+	// ------------------------------------------------------------------------------
+	// maxDifference(): returns the largest difference of any channel of any pixel of two images
+	private static int maxDifference(BufferedImage first, BufferedImage second) {
+		int[] a = ((DataBufferInt) first.getRaster().getDataBuffer()).getData();
+		int[] b = ((DataBufferInt) second.getRaster().getDataBuffer()).getData();
+		int max = 0;
+		for (int i = 0; i < a.length; i++) {
+			for (int shift = 0; shift < 32; shift += 8) {
+				max = Math.max(max, Math.abs(((a[i] >>> shift) & 0xFF) - ((b[i] >>> shift) & 0xFF)));
+			}
+		}
+		return max;
+	}
+
+	//##################################################################
+
+	// one render of the gradient into image; each run returns the image's last pixel
+	private static class Render implements Benchmark.Trial {
+		private final BilinearRenderer renderer; // gradient to render
+		private final ForkJoinPool pool;         // pool to render on
+		private final RowKernel kernel;          // fixed-point kernel, or null for the double path
+		private final BufferedImage image;       // image to render into
+		private final int[] pixels;
+
+		Render(BilinearRenderer renderer, ForkJoinPool pool, RowKernel kernel, BufferedImage image) {
+			this.renderer = renderer;
+			this.pool = pool;
+			this.kernel = kernel;
+			this.image = image;
+			this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+
+		public long run() {
+			if (this.kernel == null) {
+				this.renderer.render(this.image, this.pool);
+			}
+			else {
+				this.renderer.render(this.image, this.pool, this.kernel);
+			}
+			return this.pixels[this.pixels.length - 1];
+		}
+	}
+}
@@ -1,5 +1,6 @@
 // BilinearGradient.java
 // -- creates a bilinear gradient of four defined colors in each corner of the image
+//    - rendered by BilinearRenderer, straight into the image raster on every core
 // Author: Brandon Peterson
 
 import java.awt.*;
@@ -8,6 +9,7 @@ import java.awt.image.*;
 import java.io.*;
 import javax.imageio.*;
 import javax.swing.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class BilinearGradient {
 	private static final int frameWIDTH  = 400; // ImageFrame width
@@ -29,25 +31,20 @@ class ImageFrame extends JFrame {
 	private final int SE = 0xFFFF0000; // red in SE corner
 	private final int SW = 0xFF00FF00; // green in SW corner
 
-	// declare arrays to store extracted color channels
-	private final int[] NE_chnls;
-	private final int[] NW_chnls;
-	private final int[] SE_chnls;
-	private final int[] SW_chnls;
+	// 3x3 control grid for the gradient mesh: the four corner colors above at the corners, cyan,
+	// black, magenta and grey at the middles of the top, left, right and bottom edges, white in the center
+	private final int[] MESH = {
+		NW,         0xFF00FFFF, NE,
+		0xFF000000, 0xFFFFFFFF, 0xFFFF00FF,
+		SW,         0xFF808080, SE };
 
 	private BufferedImage image = null; // initialize null BufferedImage to change later
+	private JCheckBoxMenuItem fixedPointItem; // interpolate in fixed point when checked
 
 	//==============================================================
 	// constructor
 
 	public ImageFrame(int width, int height) {
-		// extract color channels
-		NE_chnls = new int[] {(NE >>> 24), ((NE >>> 16) & 0xFF), ((NE >>> 8) & 0xFF), (NE & 0xFF)};
-		NW_chnls = new int[] {(NW >>> 24), ((NW >>> 16) & 0xFF), ((NW >>> 8) & 0xFF), (NW & 0xFF)};
-		SE_chnls = new int[] {(SE >>> 24), ((SE >>> 16) & 0xFF), ((SE >>> 8) & 0xFF), (SE & 0xFF)};
-		SW_chnls = new int[] {(SW >>> 24), ((SW >>> 16) & 0xFF), ((SW >>> 8) & 0xFF), (SW & 0xFF)};
-
-
 		// ---------------------------------------------------------
 		// setup the frame's attributes
 
@@ -81,6 +78,52 @@ class ImageFrame extends JFrame {
 
 		fileMenu.add(bilinGradItem);	
 
+		// --- Gradient mesh, bilinear and bicubic
+
+		JMenuItem bilinMeshItem = new JMenuItem("Gradient mesh (bilinear)");
+		bilinMeshItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					int imgSize = promptForSize(); // get image size from user
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for the mesh
+					new GradientMesh(3, 3, MESH, GradientMesh.BILINEAR).render(image, ForkJoinPool.commonPool()); // create mesh gradient
+					displayBufferedImage(image); // display final image
+				}
+			}	);
+
+		fileMenu.add(bilinMeshItem);
+
+		JMenuItem bicubMeshItem = new JMenuItem("Gradient mesh (bicubic)");
+		bicubMeshItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					int imgSize = promptForSize(); // get image size from user
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for the mesh
+					new GradientMesh(3, 3, MESH, GradientMesh.BICUBIC).render(image, ForkJoinPool.commonPool()); // create mesh gradient
+					displayBufferedImage(image); // display final image
+				}
+			}	);
+
+		fileMenu.add(bicubMeshItem);
+
+		// --- Fixed-point interpolation
+
+		fixedPointItem = new JCheckBoxMenuItem("Fixed-point interpolation");
+		fileMenu.add(fixedPointItem);
+
+		// --- Export a gradient straight to PNG
+
+		JMenuItem exportItem = new JMenuItem("Export gradient PNG");
+		exportItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					int imgSize = promptForSize(); // get image size from user
+					exportBilinGrad(imgSize); // stream the gradient to a file
+				}
+			}	);
+
+		fileMenu.add(exportItem);
+
 		// --- Exit
 
 		JMenuItem exitItem = new JMenuItem("Exit");
@@ -122,81 +165,46 @@ class ImageFrame extends JFrame {
 
 	// ---------------------------------------------------------
 	// createBilinGrad(): draws bilinear gradient on image using 4 previously defined colors
-	// - interpolations are created along each row from top to bottom
+	// - interpolations are created along each row, bands of rows rendered in parallel
+	// - in fixed point (SIMD where the Vector API is available) if the menu item is checked
 
 	// params:
-	// - image = square image on which to draw
+	// - image = square TYPE_INT_ARGB image on which to draw
 	// - imgSize = size n of said nxn image
 
 	private void createBilinGrad(BufferedImage image, int imgSize) {
-		// declare arrays to store step values for each edge channel
-		double[] leftEdge_deltas = new double[4];
-		double[] rightEdge_deltas = new double[4];
-		// compute step values for each edge channel
-		for (int i = 0; i < 4; i++) {
-			leftEdge_deltas[i]  = (double) (SW_chnls[i] - NW_chnls[i])/(imgSize-1);
-			rightEdge_deltas[i] = (double) (SE_chnls[i] - NE_chnls[i])/(imgSize-1);
+		BilinearRenderer renderer = new BilinearRenderer(NW, NE, SW, SE);
+		if (fixedPointItem.isSelected()) {
+			renderer.render(image, ForkJoinPool.commonPool(), BilinearRenderer.fastestKernel());
 		}
-
-		// declare arrays to store edge channel values
-		double[] leftEdge_chnls = new double[4];
-		double[] rightEdge_chnls = new double[4];
-		// initialize left/right edge channel values to NW/NE colors
-		for (int i = 0; i < 4; i++) {
-			leftEdge_chnls[i]  = NW_chnls[i];
-			rightEdge_chnls[i] = NE_chnls[i];
-		}	
-
-		// declare array to store step values for each channel for each row interpolation
-		double[] row_deltas = new double[4];
-
-		// declare array to store current value for each channel
-		double[] curr_chnls = new double[4];
-
-		for (int row = 0; row < imgSize; row++) {
-			// compute new row step values for each channel
-			for (int i = 0; i < 4; i++) {
-				row_deltas[i] = (rightEdge_chnls[i] - leftEdge_chnls[i])/(imgSize-1);
-			}
-
-			// set current pixel channels to left edge pixel channels (start value)
-			for (int i = 0; i < 4; i++) {
-				curr_chnls[i] = leftEdge_chnls[i];
-			}
-
-			for (int col = 0; col < imgSize; col++) {
-				// set current pixel color
-				image.setRGB(col,row, synthColor(curr_chnls[0], curr_chnls[1], curr_chnls[2], curr_chnls[3]));
-
-				// increment current channel values by corresponding row deltas
-				for (int i = 0; i < 4; i++) {
-					curr_chnls[i] += row_deltas[i];
-					curr_chnls[i] = clamp(curr_chnls[i]);
-				}
-			}
-
-			// increment edge channel values by corresponding edge deltas
-			for (int i = 0; i < 4; i++) {
-				leftEdge_chnls[i] += leftEdge_deltas[i];
-				rightEdge_chnls[i] += rightEdge_deltas[i];
-			}	
+		else {
+			renderer.render(image, ForkJoinPool.commonPool());
 		}
 	}
 
-	// synthesize int color given indivual ARGB int channels
-	private int synthColor(double alpha, double red, double green, double blue) {
-		return ((int) alpha << 24) | ((int) red << 16) | ((int) green << 8 ) | (int) blue;		
-	}
+	// ---------------------------------------------------------
+	// exportBilinGrad(): asks for a PNG file and writes the bilinear gradient to it row by row,
+	// - never held as a whole image, so sizes far beyond the heap (100000x100000) can be saved
+
+	// params:
+	// - imgSize = size n of the nxn gradient
+
+	private void exportBilinGrad(int imgSize) {
+		if (imgSize <= 0) {
+			return; // nothing to export
+		}
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(new File("."));
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
 
-	// clamp channel value to smallest/largest possible value if out of possible range [0,255]
-	private double clamp(double val) {
-		if (val < 0.0) {
-			val = 0.0;
+		try (FileOutputStream out = new FileOutputStream(chooser.getSelectedFile())) {
+			new BilinearRenderer(NW, NE, SW, SE).writePng(out, imgSize); // closed here too if writePng() fails early
 		}
-		else if (val > 255.0) {
-			val = 255.0;
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception);
 		}
-		return val;
 	}
 
 	// ---------------------------------------------------------
@@ -0,0 +1,280 @@
+// BilinearRenderer.java
+// -- renders a bilinear gradient between four corner colors straight into an image's int[] raster
+//    - the left and right edge colors of every row are worked out first, in one short sequential pass
+//    - each row then depends only on its own edge colors, so bands of rows are rendered in parallel
+//      as fork/join tasks
+//    - per pixel the arithmetic is the same as the original setRGB() loop (the running channel values
+//      are stepped and clamped in the same order), so the result is identical at any thread count
+//    - render() with a RowKernel interpolates in fixed point instead, at most one step (1/255)
+//      off the double path per channel; fastestKernel() picks the Vector API kernel when it's present
+//    - writePng() streams the same pixels into a PNG a row at a time, for gradients too big to hold
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BilinearRenderer {
+	private static final int BAND_PIXELS = 1 << 16; // smallest band worth its own task
+
+	private static RowKernel fastest = null; // kernel chosen by fastestKernel(), once
+
+	private final int[] nw; // corner channels, {alpha, red, green, blue}
+	private final int[] ne;
+	private final int[] sw;
+	private final int[] se;
+
+	// constructors
+	// params:
+	// - int nw, ne, sw, se = ARGB corner colors
+	public BilinearRenderer(int nw, int ne, int sw, int se) {
+		this.nw = channels(nw);
+		this.ne = channels(ne);
+		this.sw = channels(sw);
+		this.se = channels(se);
+	}
+
+	// methods
+	// ---------------------------------------------------------------------------------
+	// render(): draw the gradient over the whole of image
+	// params:
+	// - BufferedImage image = square TYPE_INT_ARGB image to draw on
+	// - ForkJoinPool pool = pool to render bands of rows on
+	public void render(BufferedImage image, ForkJoinPool pool) {
+		int size = image.getWidth();
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		pool.invoke(new Band(pixels, size, edges(size), null, null, 0, size, minRows(size)));
+	}
+
+	// ---------------------------------------------------------------------------------
+	// render(): draw the gradient over the whole of image, in fixed point
+	// params:
+	// - BufferedImage image = square TYPE_INT_ARGB image to draw on
+	// - ForkJoinPool pool = pool to render bands of rows on
+	// - RowKernel kernel = kernel that fills each row
+	public void render(BufferedImage image, ForkJoinPool pool, RowKernel kernel) {
+		int size = image.getWidth();
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		pool.invoke(new Band(pixels, size, null, fixedRows(edges(size), size), kernel, 0, size, minRows(size)));
+	}
+
+	// ---------------------------------------------------------------------------------
+	// fastestKernel(): returns simd.VectorKernel if it was compiled and the Vector API module
+	//                  is present at run time, FixedPointKernel otherwise
+	public static synchronized RowKernel fastestKernel() {
+		if (fastest == null) {
+			try {
+				MethodHandle fill = MethodHandles.publicLookup().findStatic(Class.forName("simd.VectorKernel"), "fill",
+					MethodType.methodType(void.class, int[].class, int.class, int.class, int[].class, int.class));
+				RowKernel kernel = new SimdKernel(fill);
+				kernel.fill(new int[1], 0, 1, new int[8], 0); // links the Vector API classes now, not mid-render
+				fastest = kernel;
+			}
+			catch (ReflectiveOperationException | LinkageError exception) {
+				fastest = new FixedPointKernel();
+			}
+		}
+		return fastest;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// edges(): returns the left and right edge channels of every row, edges[8*row + c] for the
+	//          left edge and edges[8*row + 4 + c] for the right edge of channel c; the channels
+	//          are stepped down the edges by repeated addition, as in the original loop
+	double[] edges(int size) {
+		double[] edges = new double[8*size];
+		double[] current = new double[8];
+		double[] deltas = new double[8];
+		firstEdges(size, current, deltas);
+		for (int row = 0; row < size; row++) {
+			System.arraycopy(current, 0, edges, 8*row, 8);
+			for (int i = 0; i < 8; i++) {
+				current[i] += deltas[i];
+			}
+		}
+		return edges;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// firstEdges(): set edges to the edge channels of the top row, laid out as in edges(), and
+	//               deltas to what they change by from one row to the next
+	private void firstEdges(int size, double[] edges, double[] deltas) {
+		for (int c = 0; c < 4; c++) {
+			edges[c] = this.nw[c];
+			edges[4 + c] = this.ne[c];
+			deltas[c] = (double) (this.sw[c] - this.nw[c])/(size - 1);
+			deltas[4 + c] = (double) (this.se[c] - this.ne[c])/(size - 1);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------
+	// writePng(): write a size x size gradient to out as a PNG, generating each row just before it
+	//             is written, so memory use stays around one row whatever the size; RGB if every
+	//             corner is opaque, RGBA otherwise, with the pixels render() would draw
+	// params:
+	// - OutputStream out = destination of the PNG, closed when done
+	// - int size = image size
+	public void writePng(OutputStream out, int size) throws IOException {
+		boolean opaque = (this.nw[0] == 255) && (this.ne[0] == 255) && (this.sw[0] == 255) && (this.se[0] == 255);
+		int channels = opaque ? 3 : 4;
+		int[] pixels = new int[size];
+		byte[] bytes = new byte[channels*size];
+		double[] edges = new double[8];
+		double[] deltas = new double[8];
+		firstEdges(size, edges, deltas);
+
+		try (PngRowWriter png = new PngRowWriter(out, size, size, 8,
+		                                         opaque ? PngRowWriter.TRUECOLOR : PngRowWriter.TRUECOLOR_ALPHA, null)) {
+			for (int row = 0; row < size; row++) {
+				renderRow(pixels, 0, size, edges, 0);
+				for (int i = 0, j = 0; i < size; i++, j += channels) {
+					bytes[j]     = (byte) (pixels[i] >>> 16);
+					bytes[j + 1] = (byte) (pixels[i] >>> 8);
+					bytes[j + 2] = (byte) pixels[i];
+					if (!opaque) {
+						bytes[j + 3] = (byte) (pixels[i] >>> 24);
+					}
+				}
+				png.writeRow(bytes, PngRowWriter.FILTER_SUB); // neighboring gradient pixels differ by a near-constant step
+				for (int i = 0; i < 8; i++) {
+					edges[i] += deltas[i];
+				}
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------------------------
+	// fixedRows(): returns the Q22 start values and per-pixel increments of every row,
+	//              {a, r, g, b, da, dr, dg, db} at fixed[8*row], for a RowKernel
+	static int[] fixedRows(double[] edges, int size) {
+		double one = 1 << RowKernel.FRACTION_BITS;
+		int[] fixed = new int[8*size];
+		for (int i = 0; i < 8*size; i += 8) {
+			for (int c = 0; c < 4; c++) {
+				fixed[i + c] = (int) Math.round(edges[i + c]*one);
+				fixed[i + 4 + c] = (int) Math.round((edges[i + 4 + c] - edges[i + c])/(size - 1)*one);
+			}
+		}
+		return fixed;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// renderRow(): interpolate one row between its edge channels
+	// params:
+	// - int[] pixels = image raster
+	// - int offset = index of the row's first pixel
+	// - int size = image size
+	// - double[] edges = edge channels, laid out as in edges()
+	// - int e = index of the row's edge channels in edges
+	static void renderRow(int[] pixels, int offset, int size, double[] edges, int e) {
+		double a = edges[e];
+		double r = edges[e + 1];
+		double g = edges[e + 2];
+		double b = edges[e + 3];
+		double da = (edges[e + 4] - a)/(size - 1);
+		double dr = (edges[e + 5] - r)/(size - 1);
+		double dg = (edges[e + 6] - g)/(size - 1);
+		double db = (edges[e + 7] - b)/(size - 1);
+
+		for (int col = 0; col < size; col++) {
+			pixels[offset + col] = ((int) a << 24) | ((int) r << 16) | ((int) g << 8) | (int) b;
+			// step and clamp to [0,255]
+			a = clamp(a + da);
+			r = clamp(r + dr);
+			g = clamp(g + dg);
+			b = clamp(b + db);
+		}
+	}
+
+	private static double clamp(double value) {
+		return (value < 0.0) ? 0.0 : ((value > 255.0) ? 255.0 : value);
+	}
+
+	// minRows(): returns the rows a band may hold before it is split
+	private static int minRows(int size) {
+		return Math.max(1, BAND_PIXELS/Math.max(size, 1));
+	}
+
+	// extract {alpha, red, green, blue} from an ARGB color
+	static int[] channels(int color) {
+		return new int[] {(color >>> 24), ((color >>> 16) & 0xFF), ((color >>> 8) & 0xFF), (color & 0xFF)};
+	}
+
+	//##################################################################
+
+	// rows [from,to), split in half until a band is at most minRows rows; rows are filled by
+	// kernel from fixed if there is one, and by renderRow() from edges otherwise
+	private static class Band extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] pixels;
+		private final int size;
+		private final double[] edges;
+		private final int[] fixed;
+		private final RowKernel kernel;
+		private final int from;
+		private final int to;
+		private final int minRows;
+
+		Band(int[] pixels, int size, double[] edges, int[] fixed, RowKernel kernel, int from, int to, int minRows) {
+			this.pixels = pixels;
+			this.size = size;
+			this.edges = edges;
+			this.fixed = fixed;
+			this.kernel = kernel;
+			this.from = from;
+			this.to = to;
+			this.minRows = minRows;
+		}
+
+		protected void compute() {
+			if (this.to - this.from <= this.minRows) {
+				for (int row = this.from; row < this.to; row++) {
+					if (this.kernel != null) {
+						this.kernel.fill(this.pixels, row*this.size, this.size, this.fixed, 8*row);
+					}
+					else {
+						renderRow(this.pixels, row*this.size, this.size, this.edges, 8*row);
+					}
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Band(this.pixels, this.size, this.edges, this.fixed, this.kernel, this.from, middle, this.minRows),
+			          new Band(this.pixels, this.size, this.edges, this.fixed, this.kernel, middle, this.to, this.minRows));
+		}
+	}
+
+	//##################################################################
+
+	// simd.VectorKernel's static fill() as a RowKernel; it's in a package of its own, which can't
+	// implement the default package's RowKernel itself
+	private static class SimdKernel implements RowKernel {
+		private final MethodHandle fill;
+
+		SimdKernel(MethodHandle fill) {
+			this.fill = fill;
+		}
+
+		public void fill(int[] pixels, int offset, int count, int[] fixed, int at) {
+			try {
+				this.fill.invokeExact(pixels, offset, count, fixed, at);
+			}
+			catch (RuntimeException | Error exception) {
+				throw exception;
+			}
+			catch (Throwable throwable) {
+				throw new IllegalStateException(throwable); // fill() declares nothing
+			}
+		}
+
+		public String toString() {
+			return "simd.VectorKernel";
+		}
+	}
+}
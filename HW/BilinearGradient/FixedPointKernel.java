@@ -0,0 +1,30 @@
+// FixedPointKernel.java
+// -- RowKernel in plain Java: four int adds, shifts and clamps per pixel, no doubles
+//    - used wherever the Vector API isn't available
+
+public class FixedPointKernel implements RowKernel {
+	public void fill(int[] pixels, int offset, int count, int[] fixed, int at) {
+		int a = fixed[at];
+		int r = fixed[at + 1];
+		int g = fixed[at + 2];
+		int b = fixed[at + 3];
+		int da = fixed[at + 4];
+		int dr = fixed[at + 5];
+		int dg = fixed[at + 6];
+		int db = fixed[at + 7];
+
+		int end = offset + count;
+		for (int i = offset; i < end; i++) {
+			pixels[i] = (channel(a) << 24) | (channel(r) << 16) | (channel(g) << 8) | channel(b);
+			a += da;
+			r += dr;
+			g += dg;
+			b += db;
+		}
+	}
+
+	// channel(): returns the 8-bit channel of a fixed-point value, clamped to [0,255]
+	static int channel(int value) {
+		return Math.min(Math.max(value >> FRACTION_BITS, 0), 255);
+	}
+}
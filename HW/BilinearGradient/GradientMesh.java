@@ -0,0 +1,288 @@
+// GradientMesh.java
+// -- a gradient through a grid of control colors, bilinear or bicubic between neighboring points
+//    - the grid's columns are spread evenly across the image and its rows evenly down it, so a
+//      2x2 bilinear mesh is (up to rounding) the four-corner gradient of BilinearRenderer
+//    - bicubic patches are Catmull-Rom splines in both directions (each patch also looks at the
+//      ring of control points around it, repeated at the grid's edges), so colors flow smoothly
+//      from one patch into the next; channels that overshoot are clamped to [0,255]
+//    - every patch and channel is the polynomial sum of a[i][j]*u^i*v^j over i,j in [0,3]; the
+//      coefficients depend only on the control points and are computed once per mesh, and the
+//      patch and u (or v) of every column (or row) depend only on the size and are computed once
+//      per size; both are kept in small caches (coefficients by control points, axes by grid and
+//      image size), so rendering the same mesh again, at any size, skips the setup
+//    - rows are rendered in parallel as fork/join tasks, like BilinearRenderer
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class GradientMesh {
+	public static final int BILINEAR = 0; // interpolation between control points
+	public static final int BICUBIC  = 1;
+
+	private static final int CACHE_SIZE = 16;        // meshes (and sizes) kept in each cache
+	private static final int BAND_PIXELS = 1 << 16;  // smallest band worth its own task
+
+	// basis matrices: the value at u of a segment through points p0..p3 (between p1 and p2)
+	// is [1 u u^2 u^3] * BASIS * [p0 p1 p2 p3]
+	private static final double[][] LINEAR_BASIS = {
+		{ 0,  1, 0, 0 },
+		{ 0, -1, 1, 0 },
+		{ 0,  0, 0, 0 },
+		{ 0,  0, 0, 0 } };
+	private static final double[][] CATMULL_ROM_BASIS = {
+		{  0.0,  1.0,  0.0,  0.0 },
+		{ -0.5,  0.0,  0.5,  0.0 },
+		{  1.0, -2.5,  2.0, -0.5 },
+		{ -0.5,  1.5, -1.5,  0.5 } };
+
+	private static final Map<GradientMesh, double[]> coefficientCache = lruMap();
+	private static final Map<Long, Axis> axisCache = lruMap();
+
+	private final int columns;
+	private final int rows;
+	private final int[] colors; // ARGB control colors, row by row
+	private final int interpolation;
+
+	// constructors
+	// params:
+	// - int columns, rows = size of the control grid, at least 2x2
+	// - int[] colors = columns*rows ARGB control colors, row by row from the top left
+	// - int interpolation = BILINEAR or BICUBIC
+	public GradientMesh(int columns, int rows, int[] colors, int interpolation) {
+		if ((columns < 2) || (rows < 2) || (colors.length != columns*rows)) {
+			throw new IllegalArgumentException("need a grid of at least 2x2 control colors, got " + colors.length
+			                                   + " for " + columns + "x" + rows);
+		}
+		if ((interpolation != BILINEAR) && (interpolation != BICUBIC)) {
+			throw new IllegalArgumentException("unknown interpolation " + interpolation);
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.colors = colors.clone();
+		this.interpolation = interpolation;
+	}
+
+	// methods
+	public int getColumns() {
+		return this.columns;
+	}
+
+	public int getRows() {
+		return this.rows;
+	}
+
+	public int getInterpolation() {
+		return this.interpolation;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// render(): draw the mesh over the whole of image
+	// params:
+	// - BufferedImage image = TYPE_INT_ARGB image to draw on
+	// - ForkJoinPool pool = pool to render bands of rows on
+	public void render(BufferedImage image, ForkJoinPool pool) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		pool.invoke(new Band(pixels, width, this.columns - 1, coefficients(), axis(this.columns - 1, width),
+		                     axis(this.rows - 1, height), 0, height, Math.max(1, BAND_PIXELS/Math.max(width, 1))));
+	}
+
+	// ---------------------------------------------------------------------------------
+	// coefficients(): returns the polynomial coefficients of every patch and channel, from the cache
+	//                 if this mesh (or one with the same control points) was rendered before;
+	//                 a[i][j] of channel c of the patch in column px, row py is at
+	//                 16*(4*(py*(columns - 1) + px) + c) + 4*i + j
+	double[] coefficients() {
+		synchronized (coefficientCache) {
+			double[] coefficients = coefficientCache.get(this);
+			if (coefficients == null) {
+				coefficients = computeCoefficients();
+				coefficientCache.put(this, coefficients);
+			}
+			return coefficients;
+		}
+	}
+
+	// ---------------------------------------------------------------------------------
+	// computeCoefficients(): works out a = BASIS * P * BASIS^T for every patch and channel, where
+	//                        P[m][n] is the channel of the control point m-1 columns and n-1 rows
+	//                        from the patch's top left corner
+	private double[] computeCoefficients() {
+		double[][] basis = (this.interpolation == BICUBIC) ? CATMULL_ROM_BASIS : LINEAR_BASIS;
+		int patchColumns = this.columns - 1;
+		int patchRows = this.rows - 1;
+		double[] coefficients = new double[16*4*patchColumns*patchRows];
+		double[][] points = new double[4][4];
+		double[][] half = new double[4][4]; // BASIS * P
+
+		for (int py = 0; py < patchRows; py++) {
+			for (int px = 0; px < patchColumns; px++) {
+				for (int c = 0; c < 4; c++) {
+					int shift = 24 - 8*c; // alpha, red, green, blue
+					for (int m = 0; m < 4; m++) {
+						int column = Math.min(Math.max(px - 1 + m, 0), this.columns - 1);
+						for (int n = 0; n < 4; n++) {
+							int row = Math.min(Math.max(py - 1 + n, 0), this.rows - 1);
+							points[m][n] = (this.colors[row*this.columns + column] >>> shift) & 0xFF;
+						}
+					}
+					for (int i = 0; i < 4; i++) {
+						for (int n = 0; n < 4; n++) {
+							double sum = 0.0;
+							for (int m = 0; m < 4; m++) {
+								sum += basis[i][m]*points[m][n];
+							}
+							half[i][n] = sum;
+						}
+					}
+					int at = 16*(4*(py*patchColumns + px) + c);
+					for (int i = 0; i < 4; i++) {
+						for (int j = 0; j < 4; j++) {
+							double sum = 0.0;
+							for (int n = 0; n < 4; n++) {
+								sum += half[i][n]*basis[j][n];
+							}
+							coefficients[at + 4*i + j] = sum;
+						}
+					}
+				}
+			}
+		}
+		return coefficients;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// axis(): returns the patch and position within it of every pixel along an axis, from the cache
+	// params:
+	// - int patches = patches along the axis
+	// - int size = pixels along the axis
+	private static Axis axis(int patches, int size) {
+		Long key = ((long) patches << 32) | size;
+		synchronized (axisCache) {
+			Axis axis = axisCache.get(key);
+			if (axis == null) {
+				axis = new Axis(patches, size);
+				axisCache.put(key, axis);
+			}
+			return axis;
+		}
+	}
+
+	public boolean equals(Object other) {
+		if (!(other instanceof GradientMesh)) {
+			return false;
+		}
+		GradientMesh mesh = (GradientMesh) other;
+		return (this.columns == mesh.columns) && (this.rows == mesh.rows)
+			&& (this.interpolation == mesh.interpolation) && Arrays.equals(this.colors, mesh.colors);
+	}
+
+	public int hashCode() {
+		return 31*(31*(31*this.columns + this.rows) + this.interpolation) + Arrays.hashCode(this.colors);
+	}
+
+	// lruMap(): returns a map that drops its least recently used entry past CACHE_SIZE entries
+	private static <K, V> Map<K, V> lruMap() {
+		return new LinkedHashMap<K, V>(CACHE_SIZE, 0.75f, true)
+			{
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			};
+	}
+
+	//##################################################################
+
+	// patch of every pixel along one axis, and its position in [0,1] across that patch; the
+	// first pixel is on the first control point and the last pixel on the last one
+	private static class Axis {
+		private final int[] patch;
+		private final double[] position;
+
+		Axis(int patches, int size) {
+			this.patch = new int[size];
+			this.position = new double[size];
+			for (int i = 0; i < size; i++) {
+				double t = (size == 1) ? 0.0 : (double) i*patches/(size - 1);
+				int p = Math.min((int) t, patches - 1);
+				this.patch[i] = p;
+				this.position[i] = t - p;
+			}
+		}
+	}
+
+	//##################################################################
+
+	// rows [from,to), split in half until a band is at most minRows rows
+	private static class Band extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] pixels;
+		private final int width;
+		private final int patchColumns;
+		private final double[] coefficients;
+		private final Axis across;
+		private final Axis down;
+		private final int from;
+		private final int to;
+		private final int minRows;
+
+		Band(int[] pixels, int width, int patchColumns, double[] coefficients, Axis across, Axis down,
+		     int from, int to, int minRows) {
+			this.pixels = pixels;
+			this.width = width;
+			this.patchColumns = patchColumns;
+			this.coefficients = coefficients;
+			this.across = across;
+			this.down = down;
+			this.from = from;
+			this.to = to;
+			this.minRows = minRows;
+		}
+
+		protected void compute() {
+			if (this.to - this.from > this.minRows) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Band(this.pixels, this.width, this.patchColumns, this.coefficients, this.across, this.down,
+				                   this.from, middle, this.minRows),
+				          new Band(this.pixels, this.width, this.patchColumns, this.coefficients, this.across, this.down,
+				                   middle, this.to, this.minRows));
+				return;
+			}
+
+			int patchColumns = this.patchColumns;
+			double[] cubics = new double[16*patchColumns]; // the row's cubic in u, per patch and channel
+			for (int y = this.from; y < this.to; y++) {
+				// fold v into the coefficients once per row, leaving a cubic in u
+				double v = this.down.position[y];
+				int rowAt = 64*patchColumns*this.down.patch[y];
+				for (int k = 0; k < 4*patchColumns; k++) {
+					for (int i = 0; i < 4; i++) {
+						int at = rowAt + 16*k + 4*i;
+						cubics[4*k + i] = this.coefficients[at]
+							+ v*(this.coefficients[at + 1] + v*(this.coefficients[at + 2] + v*this.coefficients[at + 3]));
+					}
+				}
+
+				int offset = y*this.width;
+				for (int x = 0; x < this.width; x++) {
+					double u = this.across.position[x];
+					int at = 16*this.across.patch[x];
+					int argb = 0;
+					for (int c = 0; c < 4; c++, at += 4) {
+						double value = cubics[at] + u*(cubics[at + 1] + u*(cubics[at + 2] + u*cubics[at + 3]));
+						int channel = (int) (value + 0.5);
+						argb = (argb << 8) | Math.min(Math.max(channel, 0), 255);
+					}
+					this.pixels[offset + x] = argb;
+				}
+			}
+		}
+	}
+}
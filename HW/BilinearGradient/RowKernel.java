@@ -0,0 +1,21 @@
+// RowKernel.java
+// -- fills a row of packed ARGB pixels from fixed-point channel values
+//    - channels are Q22 fixed point (22 fraction bits, so 255 fits with room to spare), stepped by
+//      adding a per-channel increment at every pixel and truncated to 8 bits, clamped to [0,255]
+//    - FixedPointKernel is the plain Java version; simd/VectorKernel does the same with the
+//      JDK Vector API, several pixels per instruction
+
+public interface RowKernel {
+	int FRACTION_BITS = 22;
+
+	// ---------------------------------------------------------------------------------
+	// fill(): fill pixels[offset, offset+count) with one interpolated row
+	// params:
+	// - int[] pixels = image raster
+	// - int offset = index of the row's first pixel
+	// - int count = pixels in the row
+	// - int[] fixed = channel values, {a, r, g, b} at the first pixel followed by their
+	//                 increments {da, dr, dg, db}, starting at fixed[at]
+	// - int at = index of the row's values in fixed
+	void fill(int[] pixels, int offset, int count, int[] fixed, int at);
+}
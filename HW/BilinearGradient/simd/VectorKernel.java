@@ -0,0 +1,73 @@
+// VectorKernel.java
+// -- the RowKernel fill() on the JDK Vector API: one lane per pixel, as many pixels per instruction
+//    as the CPU's preferred vector width allows (8 with AVX2, 16 with AVX-512)
+//    - the Vector API is still an incubator module, so this class lives in its own package,
+//      outside the project's *.java, and is compiled separately, after the rest of the project:
+//
+//        javac -encoding UTF-8 -sourcepath ../common *.java
+//        javac --add-modules jdk.incubator.vector -d . simd/VectorKernel.java
+//        java --add-modules jdk.incubator.vector -cp .:../common BilinearGradient
+//
+//    - it can't see the default package's RowKernel, so fill() is static and
+//      BilinearRenderer.fastestKernel() looks it up by name and wraps it in a RowKernel,
+//      falling back to FixedPointKernel when it isn't there; the rest of the project never
+//      depends on the module
+//    - lanes step the same Q22 values as FixedPointKernel, so both give identical pixels
+
+package simd;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorKernel {
+	private static final int FRACTION_BITS = 22; // as RowKernel.FRACTION_BITS
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	// fill(): RowKernel.fill(), see there
+	public static void fill(int[] pixels, int offset, int count, int[] fixed, int at) {
+		int lanes = SPECIES.length();
+		IntVector index = IntVector.zero(SPECIES).addIndex(1); // {0, 1, 2, ...}
+
+		// lane k starts k increments along the row, and every lane moves on by lanes increments
+		IntVector a = index.mul(fixed[at + 4]).add(fixed[at]);
+		IntVector r = index.mul(fixed[at + 5]).add(fixed[at + 1]);
+		IntVector g = index.mul(fixed[at + 6]).add(fixed[at + 2]);
+		IntVector b = index.mul(fixed[at + 7]).add(fixed[at + 3]);
+		int da = lanes*fixed[at + 4];
+		int dr = lanes*fixed[at + 5];
+		int dg = lanes*fixed[at + 6];
+		int db = lanes*fixed[at + 7];
+
+		int i = 0;
+		for (int upper = SPECIES.loopBound(count); i < upper; i += lanes) {
+			IntVector argb = channel(a).lanewise(VectorOperators.LSHL, 24)
+				.or(channel(r).lanewise(VectorOperators.LSHL, 16))
+				.or(channel(g).lanewise(VectorOperators.LSHL, 8))
+				.or(channel(b));
+			argb.intoArray(pixels, offset + i);
+			a = a.add(da);
+			r = r.add(dr);
+			g = g.add(dg);
+			b = b.add(db);
+		}
+
+		// leftover pixels, continuing from where the lanes stopped
+		for (; i < count; i++) {
+			pixels[offset + i] = (channel(fixed[at] + i*fixed[at + 4]) << 24)
+				| (channel(fixed[at + 1] + i*fixed[at + 5]) << 16)
+				| (channel(fixed[at + 2] + i*fixed[at + 6]) << 8)
+				| channel(fixed[at + 3] + i*fixed[at + 7]);
+		}
+	}
+
+	// channel(): 8-bit channels of fixed-point lanes, clamped to [0,255]
+	private static IntVector channel(IntVector value) {
+		return value.lanewise(VectorOperators.ASHR, FRACTION_BITS).max(0).min(255);
+	}
+
+	// channel(): 8-bit channel of a fixed-point value, clamped to [0,255], as FixedPointKernel does
+	private static int channel(int value) {
+		return Math.min(Math.max(value >> FRACTION_BITS, 0), 255);
+	}
+}
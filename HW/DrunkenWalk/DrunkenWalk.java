@@ -1,8 +1,14 @@
 // DrunkenWalk.java
 // - Allows user to simulate a drunken walk (Brownian motion) 
 //   based on two types of neighborhoods (von Neumann & Moore)
-//	 and three types of topologies (infinite plane, bounded plane, 
-//   & toroidal plane)
+//	 and five types of topologies (infinite plane, bounded plane, 
+//   toroidal plane, reflecting plane & Klein bottle)
+// - an ensemble mode walks many drunks at once and shows how often each pixel is visited
+// - every visited pixel is kept, even off screen, so any part of the last walk can be exported
+// - walks can be recorded to trace files and replayed later, in whole or in part
+// - self-avoiding and growing self-avoiding walks never visit a pixel twice
+// - statistics of the last walk (displacement, distinct sites, returns, cover) are shown on request
+// - neighborhoods and topologies come from ../common (javac -sourcepath ../common *.java)
 // by Brandon Peterson (8/30/16)
 
 import java.awt.*;
@@ -11,7 +17,7 @@ import java.awt.image.*;
 import java.io.*;
 import javax.imageio.*;
 import javax.swing.*;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class DrunkenWalk {
 	private static final int frameWIDTH  = 400; // ImageFrame width
@@ -33,7 +39,13 @@ class ImageFrame extends JFrame {
 
 	private static final int imgWIDTH  = 401; // BufferedImage width
 	private static final int imgHEIGHT = 401; // BufferedImage height
+	private static final int BATCH = 4096; // number of steps drawn and taken at a time
 	private BufferedImage image = null; // initialize null BufferedImage to change later
+	private SparsePlane plane = null; // every pixel visited by the last drunken walk
+	private int lastPosx; // final pos of the last drunken walk
+	private int lastPosy;
+	private JCheckBoxMenuItem recordItem; // when selected, walks are recorded to a trace file
+	private WalkStats stats = null; // statistics of the last drunken walk
 
 	//==============================================================
 	// constructor
@@ -57,123 +69,259 @@ class ImageFrame extends JFrame {
 
 		JMenu fileMenu = new JMenu("File");
 
-		// --- Exit
+		// --- Export a viewport of the last walk
 
-		JMenuItem exitItem = new JMenuItem("Exit");
-		exitItem.addActionListener(new ActionListener()
+		JMenuItem exportViewportItem = new JMenuItem("Export viewport");
+		exportViewportItem.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
-					System.exit(0);
+					if (plane == null) {
+						JOptionPane.showMessageDialog(ImageFrame.this, "Take a drunken walk first.");
+						return;
+					}
+					int x0 = promptForInt("Enter the viewport's left x"); // window coordinates, the walk starts at the center
+					int y0 = promptForInt("Enter the viewport's top y");
+					int width = promptForCount("Enter the viewport's width");
+					int height = promptForCount("Enter the viewport's height");
+					exportTrace(x0, y0, width, height);
 				}
 			}	);
 
-		fileMenu.add(exitItem);	
-		
-		// === von Neumann menu
+		fileMenu.add(exportViewportItem);
 
-		JMenu vonNeumannMenu = new JMenu("von Neumann");	
+		// --- Export everything the last walk visited
 
-		// --- Drunken walk on an infinite plane
+		JMenuItem exportBoundsItem = new JMenuItem("Export bounding box");
+		exportBoundsItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					if (plane == null) {
+						JOptionPane.showMessageDialog(ImageFrame.this, "Take a drunken walk first.");
+						return;
+					}
+					exportTrace(plane.getMinX(), plane.getMinY(),
+					            plane.getMaxX() - plane.getMinX() + 1, plane.getMaxY() - plane.getMinY() + 1);
+				}
+			}	);
+
+		fileMenu.add(exportBoundsItem);
 
-		JMenuItem infinitePlaneItemVN = new JMenuItem("Drunken walk on an infinite plane");
-		infinitePlaneItemVN.addActionListener(new ActionListener() 
+		// --- Statistics of the last walk
+
+		JMenuItem statsItem = new JMenuItem("Walk statistics");
+		statsItem.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
-					int numSteps = promptForSteps(); // get number of steps from user
-					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 0, 0); // simulate drunken walk on infinite plane using von Neumann neighborhood
-					displayBufferedImage(image); // display final image		
+					if (stats == null) {
+						JOptionPane.showMessageDialog(ImageFrame.this, "Take a drunken walk first.");
+						return;
+					}
+					JOptionPane.showMessageDialog(ImageFrame.this, stats.toString(), "Walk statistics", JOptionPane.INFORMATION_MESSAGE);
 				}
 			}	);
 
-		vonNeumannMenu.add(infinitePlaneItemVN);
+		fileMenu.add(statsItem);
+
+		// --- Record walks to trace files
+
+		recordItem = new JCheckBoxMenuItem("Record walks");
+		fileMenu.add(recordItem);
 
-		// --- Drunken walk on a bounded plane
+		// --- Replay part of a recorded walk
 
-		JMenuItem boundedPlaneItemVN = new JMenuItem("Drunken walk on a bounded plane");
-		boundedPlaneItemVN.addActionListener( new ActionListener()
+		JMenuItem replayItem = new JMenuItem("Replay trace");
+		replayItem.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
-					int numSteps = promptForSteps(); // get number of steps from user
-					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 0, 1); // simulate drunken walk on bounded plane using von Neumann neighborhood
-					displayBufferedImage(image); // display final image		
+					JFileChooser chooser = new JFileChooser();
+					chooser.setCurrentDirectory(new File("."));
+					if (chooser.showOpenDialog(ImageFrame.this) == JFileChooser.APPROVE_OPTION) {
+						image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for the replay
+						replayTrace(image, chooser.getSelectedFile()); // replay steps chosen by the user
+						displayBufferedImage(image); // display final image
+					}
 				}
 			}	);
 
-		vonNeumannMenu.add(boundedPlaneItemVN);
+		fileMenu.add(replayItem);
 
-		// --- Drunken walk on a toroidal plane
+		// --- Exit
 
-		JMenuItem toroidalPlaneItemVN = new JMenuItem("Drunken walk on a toroidal plane");
-		toroidalPlaneItemVN.addActionListener(new ActionListener()
+		JMenuItem exitItem = new JMenuItem("Exit");
+		exitItem.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
-					int numSteps = promptForSteps(); // get number of steps from user
-					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 0, 2); // simulate drunken walk on toroidal plane using von Neumann neighborhood
-					displayBufferedImage(image); // display final image						
+					System.exit(0);
 				}
 			}	);
 
-		vonNeumannMenu.add(toroidalPlaneItemVN);			
+		fileMenu.add(exitItem);	
+		
+		// === von Neumann menu
+
+		JMenu vonNeumannMenu = new JMenu("von Neumann");	
+		addWalkItems(vonNeumannMenu, Neighborhood.VON_NEUMANN);
 
 		// === Moore menu
 
 		JMenu mooreMenu = new JMenu("Moore");					
+		addWalkItems(mooreMenu, Neighborhood.MOORE);
 
-		// --- Drunken walk on an infinite plane
+		// === attach menus to a menu bar
+
+		JMenuBar menuBar = new JMenuBar();
+		menuBar.add(fileMenu);
+		menuBar.add(vonNeumannMenu);
+		menuBar.add(mooreMenu);
+		this.setJMenuBar(menuBar);
+	}
+
+	// ---------------------------------------------------------
+	// addWalkItems() - add a drunken walk item for each topology to menu
 
-		JMenuItem infinitePlaneItemM = new JMenuItem("Drunken walk on an infinite plane");
-		infinitePlaneItemM.addActionListener(new ActionListener() 
+	// params:
+	// - JMenu menu: menu to add the items to
+	// - Neighborhood neighborhood: neighborhood the drunk walks in
+
+	private void addWalkItems(JMenu menu, Neighborhood neighborhood) {
+		addWalkItem(menu, "Drunken walk on an infinite plane", neighborhood, "infinite");
+		addWalkItem(menu, "Drunken walk on a bounded plane", neighborhood, "bounded");
+		addWalkItem(menu, "Drunken walk on a toroidal plane", neighborhood, "toroid");
+		addWalkItem(menu, "Drunken walk on a reflecting plane", neighborhood, "reflecting");
+		addWalkItem(menu, "Drunken walk on a Klein bottle", neighborhood, "klein");
+
+		// --- Ensemble of drunks, shown as a visit density map
+
+		JMenu ensembleMenu = new JMenu("Ensemble");
+		addEnsembleItem(ensembleMenu, "Ensemble walk on an infinite plane", neighborhood, "infinite");
+		addEnsembleItem(ensembleMenu, "Ensemble walk on a bounded plane", neighborhood, "bounded");
+		addEnsembleItem(ensembleMenu, "Ensemble walk on a toroidal plane", neighborhood, "toroid");
+		addEnsembleItem(ensembleMenu, "Ensemble walk on a reflecting plane", neighborhood, "reflecting");
+		addEnsembleItem(ensembleMenu, "Ensemble walk on a Klein bottle", neighborhood, "klein");
+		menu.add(ensembleMenu);
+
+		// --- Self-avoiding walks on the infinite plane
+
+		JMenuItem selfAvoidingItem = new JMenuItem("Self-avoiding walk");
+		selfAvoidingItem.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
 					int numSteps = promptForSteps(); // get number of steps from user
-					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 1, 0); // simulate drunken walk on infinite plane using Moore neighborhood
-					displayBufferedImage(image); // display final image		
+					int maxAttempts = promptForCount("Enter the maximum number of attempts"); // get number of attempts from user
+					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for self-avoiding walk simulation
+					selfAvoidingWalk(image, numSteps, neighborhood, false, maxAttempts); // simulate self-avoiding walk
+					displayBufferedImage(image); // display final image
+				}
+			}	);
+
+		menu.add(selfAvoidingItem);
+
+		JMenuItem growingItem = new JMenuItem("Growing self-avoiding walk");
+		growingItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					int numSteps = promptForSteps(); // get number of steps from user
+					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for self-avoiding walk simulation
+					selfAvoidingWalk(image, numSteps, neighborhood, true, 1); // simulate growing self-avoiding walk
+					displayBufferedImage(image); // display final image
 				}
 			}	);
 
-		mooreMenu.add(infinitePlaneItemM);
+		menu.add(growingItem);
+	}
 
-		// --- Drunken walk on a bounded plane
+	// ---------------------------------------------------------
+	// addWalkItem() - add an item running a drunken walk to menu
 
-		JMenuItem boundedPlaneItemM = new JMenuItem("Drunken walk on a bounded plane");
-		boundedPlaneItemM.addActionListener( new ActionListener()
+	// params:
+	// - JMenu menu: menu to add the item to
+	// - String label: item text
+	// - Neighborhood neighborhood: neighborhood the drunk walks in
+	// - String topology: name of the plane's topology, see Topology.forName()
+
+	private void addWalkItem(JMenu menu, String label, final Neighborhood neighborhood, final String topology) {
+		JMenuItem item = new JMenuItem(label);
+		item.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
 					int numSteps = promptForSteps(); // get number of steps from user
+					File traceFile = null; // file to record the walk to, if any
+					if (recordItem.isSelected()) {
+						JFileChooser chooser = new JFileChooser();
+						chooser.setCurrentDirectory(new File("."));
+						if (chooser.showSaveDialog(ImageFrame.this) == JFileChooser.APPROVE_OPTION) {
+							traceFile = chooser.getSelectedFile();
+						}
+					}
 					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 1, 1); // simulate drunken walk on bounded plane using Moore neighborhood
+					drunkenWalk(image, numSteps, neighborhood, Topology.forName(topology, imgWIDTH, imgHEIGHT), traceFile); // simulate drunken walk
 					displayBufferedImage(image); // display final image		
 				}
 			}	);
 
-		mooreMenu.add(boundedPlaneItemM);
+		menu.add(item);
+	}
 
-		// --- Drunken walk on a toroidal plane
+	// ---------------------------------------------------------
+	// addEnsembleItem() - add an item running an ensemble walk to menu
 
-		JMenuItem toroidalPlaneItemM = new JMenuItem("Drunken walk on a toroidal plane");
-		toroidalPlaneItemM.addActionListener(new ActionListener()
+	// params:
+	// - JMenu menu: menu to add the item to
+	// - String label: item text
+	// - Neighborhood neighborhood: neighborhood the drunks walk in
+	// - String topology: name of the plane's topology, see Topology.forName()
+
+	private void addEnsembleItem(JMenu menu, String label, final Neighborhood neighborhood, final String topology) {
+		JMenuItem item = new JMenuItem(label);
+		item.addActionListener(new ActionListener()
 			{
 				public void actionPerformed(ActionEvent event) {
+					int numWalkers = promptForCount("Enter the number of drunks"); // get number of drunks from user
 					int numSteps = promptForSteps(); // get number of steps from user
-					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for drunken walk simulation
-					drunkenWalk(image, numSteps, 1, 2); // simulate drunken walk on toroidal plane using Moore neighborhood
-					displayBufferedImage(image); // display final image						
+					image = new BufferedImage(imgWIDTH, imgHEIGHT, BufferedImage.TYPE_INT_ARGB); // construct image for ensemble walk simulation
+					ensembleWalk(image, numWalkers, numSteps, neighborhood, Topology.forName(topology, imgWIDTH, imgHEIGHT)); // simulate ensemble walk
+					displayBufferedImage(image); // display final image		
 				}
 			}	);
 
-		mooreMenu.add(toroidalPlaneItemM);	
+		menu.add(item);
+	}
 
-		// === attach menus to a menu bar
+	// ---------------------------------------------------------
+	// promptForCount() - prompt the user for a non-negative number based on msg
 
-		JMenuBar menuBar = new JMenuBar();
-		menuBar.add(fileMenu);
-		menuBar.add(vonNeumannMenu);
-		menuBar.add(mooreMenu);
-		this.setJMenuBar(menuBar);
+	private int promptForCount(String msg) {
+		String result = JOptionPane.showInputDialog(msg); // get String input from option pane
+		int count = 0; // initialize to zero before checking correct format
+
+		try {
+			count = Integer.parseInt(result);
+		}
+		catch (NumberFormatException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
+		if (count < 0) {
+			// don't allow negative input
+			JOptionPane.showMessageDialog(this, "Input must be non-negative.", "Input must be non-negative.", JOptionPane.ERROR_MESSAGE);
+			count = 0;
+		}
+		return count;
+	}
+
+	// ---------------------------------------------------------
+	// promptForInt() - prompt the user for any int based on msg
+
+	private int promptForInt(String msg) {
+		String result = JOptionPane.showInputDialog(msg); // get String input from option pane
+		int value = 0; // initialize to zero before checking correct format
+
+		try {
+			value = Integer.parseInt(result);
+		}
+		catch (NumberFormatException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
+		return value;
 	}
 
 	// ---------------------------------------------------------
@@ -202,122 +350,254 @@ class ImageFrame extends JFrame {
 	//				   - Moore neighborhood
 	//					 on
 	// 				     - an infinite plane,
-	//				     - a bounded plane, or
-	//  			     - a toroidal plane, 
+	//				     - a bounded plane,
+	//  			     - a toroidal plane,
+	//  			     - a reflecting plane, or
+	//  			     - a Klein bottle
+	//				   steps are drawn BATCH at a time and handed to the topology's walk loop;
+	//				   every visited pixel is kept in plane, statistics are kept in stats,
+	//				   and the 401 x 401 window is painted from plane once the walk is over
 
 	// params:
 	// - BufferedImage image: image on which to display drunken walk sequence
 	// - int numSteps: number of steps in drunken walk
-	// - int neighborhood: 0 = von Neumann, 1 = Moore
-	// - int topology: 0 = infinite plane, 1 = bounded plane, 2 = toroidal plane
+	// - Neighborhood neighborhood: von Neumann or Moore
+	// - Topology topology: plane the drunk walks on, imgWIDTH x imgHEIGHT
+	// - File traceFile: file to record the walk to, or null
+
+
+	private void drunkenWalk(BufferedImage image, int numSteps, Neighborhood neighborhood, Topology topology, File traceFile) {
+		plane = new SparsePlane();
+
+		int currPosx = imgWIDTH/2;  // start at the center,
+		int currPosy = imgHEIGHT/2; // then track the current pos during walk
+
+		StepSource steps = new StepSource(neighborhood, new SplittableRandom().nextLong()); // random walk sequence, many steps per draw
+		byte[] moves = new byte[BATCH]; // next steps, as neighborhood move codes
+		int[] pathX = new int[BATCH];   // positions
+		int[] pathY = new int[BATCH];   // after each step
+
+		stats = new WalkStats(topology, currPosx, currPosy);
+		try (TraceWriter trace = (traceFile != null) ? new TraceWriter(traceFile, neighborhood, topology, currPosx, currPosy) : null) {
+			if (numSteps > 0) { // if numSteps = 0, only the cream background will be displayed
+				plane.visit(currPosx, currPosy); // mark start pos
+				int stepsLeft = numSteps - 1;
+				while (stepsLeft > 0) {
+					int count = Math.min(stepsLeft, BATCH);
+					steps.next(moves, count); // step ϵ [0,4) or [0,8)
+					topology.walk(currPosx, currPosy, moves, count, neighborhood, pathX, pathY);
+					plane.visit(pathX, pathY, count);
+					stats.record(moves, count, neighborhood, currPosx, currPosy, pathX, pathY);
+					if (trace != null) {
+						trace.write(moves, count, pathX, pathY);
+					}
+					currPosx = pathX[count - 1];
+					currPosy = pathY[count - 1];
+					stepsLeft -= count;
+				}
+			}
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception); // the walk itself is complete
+		}
+		lastPosx = currPosx;
+		lastPosy = currPosy;
+		paintWindow(image, numSteps > 1);
+	}
 
+	// ---------------------------------------------------------
+	// selfAvoidingWalk() - simulation of a walk on the infinite plane that
+	//						never visits a pixel twice
+	//						- a self-avoiding walk steps anywhere in the neighborhood,
+	//						  and starts over when it steps on itself
+	//						- a growing self-avoiding walk only steps to unvisited
+	//						  pixels, and stops when it is trapped
+	//						the walk is kept in plane and stats like a drunken walk
 
-	private void drunkenWalk(BufferedImage image, int numSteps, int neighborhood, int topology) {
-		// fill background with cream color
-		for (int i = 0; i < imgWIDTH; i++) {
-			for (int j = 0; j < imgHEIGHT; j++) {
-				image.setRGB(i, j, CREAM);
+	// params:
+	// - BufferedImage image: image on which to display the walk
+	// - int numSteps: number of steps in the walk, counting the start as in drunkenWalk()
+	// - Neighborhood neighborhood: von Neumann or Moore
+	// - boolean growing: growing self-avoiding walk if true
+	// - int maxAttempts: number of times a self-avoiding walk may start over
+
+	private void selfAvoidingWalk(BufferedImage image, int numSteps, Neighborhood neighborhood, boolean growing, int maxAttempts) {
+		int startPosx = imgWIDTH/2;
+		int startPosy = imgHEIGHT/2;
+		Topology topology = Topology.forName("infinite", imgWIDTH, imgHEIGHT);
+
+		SelfAvoidingWalk walk = new SelfAvoidingWalk(neighborhood, new SplittableRandom().nextLong());
+		int length = walk.walk(startPosx, startPosy, Math.max(numSteps - 1, 0), growing, Math.max(maxAttempts, 1));
+
+		// copy the walk into plane and stats, BATCH steps at a time
+		plane = new SparsePlane();
+		stats = new WalkStats(topology, startPosx, startPosy);
+		plane.visit(startPosx, startPosy);
+		byte[] moves = new byte[BATCH];
+		int[] pathX = new int[BATCH];
+		int[] pathY = new int[BATCH];
+		for (int first = 0; first < length; first += BATCH) {
+			int count = Math.min(length - first, BATCH);
+			for (int i = 0; i < count; i++) {
+				moves[i] = walk.getMove(first + i);
+				pathX[i] = walk.getX(first + i + 1);
+				pathY[i] = walk.getY(first + i + 1);
 			}
+			plane.visit(pathX, pathY, count);
+			stats.record(moves, count, neighborhood, walk.getX(first), walk.getY(first), pathX, pathY);
 		}
+		lastPosx = walk.getX(length);
+		lastPosy = walk.getY(length);
+		paintWindow(image, length > 0);
+	}
 
-		int startPosx = imgWIDTH/2;  // define starting x pos
-		int startPosy = imgHEIGHT/2; // define starting y pos
-		int currPosx; // var to store current x pos during walk
-		int currPosy; // var to store current y pos during walk
+	// ---------------------------------------------------------
+	// replayTrace() - replay a step range, chosen by the user, of a walk
+	//				   recorded in traceFile
 
-		int stepColor = BLACK; // every step will be black, except the last step will be red
+	// params:
+	// - BufferedImage image: image on which to display the replayed steps
+	// - File traceFile: trace written by a recorded drunken walk
+
+	private void replayTrace(BufferedImage image, File traceFile) {
+		try (TraceReader trace = new TraceReader(traceFile)) {
+			int numSteps = (int) Math.min(trace.getNumSteps(), Integer.MAX_VALUE);
+			int from = Math.min(promptForCount("Enter the first step to replay (0 to " + numSteps + ")"), numSteps);
+			int to = Math.min(Math.max(promptForCount("Enter the last step to replay (" + from + " to " + numSteps + ")"), from), numSteps);
+
+			plane = new SparsePlane();
+			int[] last = trace.replay(from, to, plane);
+			lastPosx = last[0];
+			lastPosy = last[1];
+			paintWindow(image, to > 0);
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
+	}
 
-		Random rand = new Random(); // create new Random object for generating walk sequence
+	// ---------------------------------------------------------
+	// paintWindow() - paint the part of plane inside the 401 x 401 window
 
-		if (numSteps > 0) { // if numSteps = 0, only the cream background will be displayed
-			image.setRGB(startPosx, startPosy, BLACK); // mark start pos in black
-			if (numSteps > 1) {
-				currPosx = startPosx; // define current pos
-				currPosy = startPosy; // @ start pos
-				for (int i = 2; i <= numSteps; i++) {
-					if (i == numSteps) {
-						stepColor = RED;
-					}
-					int step = 0; // initialize step to 0 before generating rand val
-					switch (neighborhood) {
-						case 0: // von Neumann
-								step = rand.nextInt(4); // step ϵ [0,4)
-								break;
-						case 1: // Moore
-								step = rand.nextInt(8); // step ϵ [0,8)
-								break;						
-					}
-					switch (step) {
-						case 0: currPosy++; // move down 1 pixel
-								break;
-						case 1: currPosx--; // move left 1 pixel
-								break;
-						case 2: currPosy--; // move up 1 pixel
-								break;
-						case 3: currPosx++; // move right 1 pixel
-								break;
-						case 4: currPosx--; // move left 1 pixel
-								currPosy++; // & down 1 pixel
-								break;
-						case 5: currPosx--; // move left 1 pixel
-								currPosy--; // & up 1 pixel
-								break;
-						case 6: currPosx++; // move right 1 pixel
-								currPosy--; // & up 1 pixel
-								break;
-						case 7: currPosx++; // move right 1 pixel
-								currPosy++; // & down 1 pixel
-								break;								
-					}
-					switch (topology) {
-						case 0: // infinite plane - 
-								// let the drunk walk outside/through the boundaries,
-								// but only mark steps made inside the 401 x 401 window
-								if ((currPosx >= 0) && (currPosx < imgWIDTH)) {
-									if ((currPosy >= 0) && (currPosy < imgHEIGHT)) {
-										image.setRGB(currPosx, currPosy, stepColor);							
-									}	
-								}							
-								break;
-						case 1: // bounded plane -
-								// don't let the drunk walk outside/through the boundaries
-								// instead, make him "bounce off the walls" 
-								if (currPosx == imgWIDTH) {
-									currPosx = imgWIDTH-1;
-								}
-								else if (currPosx < 0) {
-									currPosx = 0;
-								}
-								if (currPosy == imgHEIGHT) {
-									currPosy = imgHEIGHT-1;
-								}
-								else if (currPosy < 0) {
-									currPosy = 0;
-								}
-								image.setRGB(currPosx, currPosy, stepColor);							
-								break;
-						case 2: // toroidal plane -
-								// connect top/bottom boundaries and left/right 
-								// boundaries to let drunk walk freely between; 
-								// note: opposite corners are connected as a result
-								if (currPosx == imgWIDTH) {
-									currPosx = 0;
-								}
-								else if (currPosx < 0) {
-									currPosx = imgWIDTH-1;
-								}
-								if (currPosy == imgHEIGHT) {
-									currPosy = 0;
-								}
-								else if (currPosy < 0) {
-									currPosy = imgHEIGHT-1;
-								}
-								image.setRGB(currPosx, currPosy, stepColor);							
-								break;																
-					}
+	// params:
+	// - BufferedImage image: image to paint, imgWIDTH x imgHEIGHT
+	// - boolean markLast: paint the last pos red
+
+	private void paintWindow(BufferedImage image, boolean markLast) {
+		// on the infinite plane the drunk may walk outside/through the boundaries,
+		// but only steps made inside the 401 x 401 window are shown
+		int[] row = new int[imgWIDTH];
+		long[] bits = new long[(imgWIDTH + 63)/64];
+		for (int y = 0; y < imgHEIGHT; y++) {
+			plane.getRow(y, 0, imgWIDTH, bits);
+			for (int x = 0; x < imgWIDTH; x++) {
+				row[x] = (((bits[x >>> 6] >>> x) & 1L) != 0) ? BLACK : CREAM;
+			}
+			image.setRGB(0, y, imgWIDTH, 1, row, 0, imgWIDTH);
+		}
+		// every step is black, except the last step is red
+		if (markLast && (lastPosx >= 0) && (lastPosx < imgWIDTH) && (lastPosy >= 0) && (lastPosy < imgHEIGHT)) {
+			image.setRGB(lastPosx, lastPosy, RED);
+		}
+	}
+
+	// ---------------------------------------------------------
+	// exportTrace() - ask for a PNG file and write the part of the last drunken
+	//				   walk in the given viewport to it, one row at a time, so
+	//				   viewports far larger than the window can be saved
+
+	// params:
+	// - int x0, y0: window coordinates of the viewport's top left pixel
+	// - int width, height: viewport size
+
+	private void exportTrace(int x0, int y0, int width, int height) {
+		if ((width <= 0) || (height <= 0)) {
+			return; // nothing to export
+		}
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(new File("."));
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+
+		long[] bits = new long[(width + 63)/64];
+		byte[] row = new byte[(width + 3)/4]; // 4 pixels per byte
+
+		// spread 4 pixels over a byte of 2-bit palette indices, first pixel highest
+		byte[] spread = new byte[16];
+		for (int n = 0; n < 16; n++) {
+			for (int i = 0; i < 4; i++) {
+				spread[n] |= ((n >>> i) & 1) << (6 - 2*i);
+			}
+		}
+
+		try (PngRowWriter png = new PngRowWriter(new FileOutputStream(chooser.getSelectedFile()), width, height, 2,
+		                                         PngRowWriter.PALETTE, new int[] {CREAM, BLACK, RED})) {
+			for (int y = y0; y < y0 + height; y++) {
+				plane.getRow(y, x0, width, bits);
+				for (int i = 0; i < row.length; i++) {
+					row[i] = spread[(int) (bits[i >>> 4] >>> (4*i)) & 0xF]; // pixels 4i to 4i+3
+				}
+				if ((y == lastPosy) && (lastPosx >= x0) && (lastPosx < x0 + width)) {
+					int i = lastPosx - x0;
+					int shift = 6 - 2*(i & 3);
+					row[i >>> 2] = (byte) ((row[i >>> 2] & ~(3 << shift)) | (2 << shift));
 				}
+				png.writeRow(row);
 			}
 		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
+	}
+
+	// ---------------------------------------------------------
+	// ensembleWalk() - numWalkers independent drunken walks from the center,
+	//					run on every available core; each pixel is shaded
+	//					from cream (never visited) to black (most visited)
+	//					on a log scale, so rarely visited fringes stay visible
+
+	// params:
+	// - BufferedImage image: image on which to display the visit density
+	// - int numWalkers: number of drunks
+	// - int numSteps: number of steps each drunk takes, counting the start as in drunkenWalk()
+	// - Neighborhood neighborhood: von Neumann or Moore
+	// - Topology topology: plane the drunks walk on, imgWIDTH x imgHEIGHT
+
+	private void ensembleWalk(BufferedImage image, int numWalkers, int numSteps, Neighborhood neighborhood, Topology topology) {
+		long[] visits;
+		try {
+			EnsembleWalk ensemble = new EnsembleWalk(neighborhood, topology, new SplittableRandom(), numWalkers, numSteps);
+			visits = ensemble.run(Runtime.getRuntime().availableProcessors());
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		long maxVisits = 0;
+		for (long count : visits) {
+			maxVisits = Math.max(maxVisits, count);
+		}
+		double scale = (maxVisits > 0) ? 1.0/Math.log1p(maxVisits) : 0.0;
+
+		int[] row = new int[imgWIDTH];
+		for (int y = 0; y < imgHEIGHT; y++) {
+			for (int x = 0; x < imgWIDTH; x++) {
+				row[x] = toneMap(Math.log1p(visits[y*imgWIDTH + x])*scale);
+			}
+			image.setRGB(0, y, imgWIDTH, 1, row, 0, imgWIDTH);
+		}
+	}
+
+	// ---------------------------------------------------------
+	// toneMap() - returns the color t of the way from CREAM to BLACK, t ϵ [0,1]
+
+	private static int toneMap(double t) {
+		int r = (int) Math.round(((CREAM >>> 16) & 0xFF)*(1.0 - t));
+		int g = (int) Math.round(((CREAM >>> 8) & 0xFF)*(1.0 - t));
+		int b = (int) Math.round((CREAM & 0xFF)*(1.0 - t));
+		return 0xFF000000 | (r << 16) | (g << 8) | b;
 	}
 
 	// ---------------------------------------------------------
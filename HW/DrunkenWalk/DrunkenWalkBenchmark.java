@@ -0,0 +1,84 @@
+// DrunkenWalkBenchmark.java
+// -- times long drunken walks with the steps drawn from java.util.Random or from a StepSource
+//    - both walk the toroidal plane through the same Topology.walk() loop, so only the
+//      source of the steps differs
+//    - one warmup walk per case lets the JIT compile the loops before anything is measured,
+//      then every walk is timed (see Benchmark)
+//    - reports steps per second for both neighborhoods, and a checksum of the walks' positions
+//
+// usage: java DrunkenWalkBenchmark [numSteps] [repeats]   (default 10^8, 3)
+
+import java.util.Random;
+
+public class DrunkenWalkBenchmark {
+	private static final int SIZE = 401;
+	private static final int BATCH = 4096;
+	private static final long SEED = 42L;
+	private static final int WARMUPS = 1;
+
+	public static void main(String[] args) {
+		long numSteps = (args.length > 0) ? Long.parseLong(args[0]) : 100000000L;
+		int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		Topology topology = Topology.forName("toroid", SIZE, SIZE);
+
+		long checksum = 0;
+		System.out.printf("%-12s %16s %18s %8s%n", "neighborhood", "Random steps/s", "StepSource steps/s", "speedup");
+		for (Neighborhood neighborhood : new Neighborhood[] { Neighborhood.VON_NEUMANN, Neighborhood.MOORE }) {
+			Benchmark.Result random = Benchmark.measure(new Walk(topology, neighborhood, numSteps, false), WARMUPS, repeats);
+			Benchmark.Result source = Benchmark.measure(new Walk(topology, neighborhood, numSteps, true), WARMUPS, repeats);
+			double randomRate = Benchmark.mean(random.rates(numSteps));
+			double sourceRate = Benchmark.mean(source.rates(numSteps));
+			System.out.printf("%-12s %16.0f %18.0f %7.2fx%n", neighborhood, randomRate, sourceRate, sourceRate/randomRate);
+			checksum += random.checksum() + source.checksum();
+		}
+		System.out.println("checksum " + checksum);
+	}
+
+	//##################################################################
+
+	// one drunk walking numSteps steps from the center; each run returns the sum of its positions
+	// after every batch of steps
+	private static class Walk implements Benchmark.Trial {
+		private final Topology topology;         // plane to walk on
+		private final Neighborhood neighborhood; // neighborhood to walk in
+		private final long numSteps;             // number of steps to take
+		private final boolean useStepSource;     // draw the steps from a StepSource if true, from a Random otherwise
+
+		Walk(Topology topology, Neighborhood neighborhood, long numSteps, boolean useStepSource) {
+			this.topology = topology;
+			this.neighborhood = neighborhood;
+			this.numSteps = numSteps;
+			this.useStepSource = useStepSource;
+		}
+
+		public long run() {
+			Random rand = new Random(SEED);
+			StepSource steps = new StepSource(this.neighborhood, SEED);
+			byte[] moves = new byte[BATCH];
+			int[] pathX = new int[BATCH];
+			int[] pathY = new int[BATCH];
+			int x = SIZE/2;
+			int y = SIZE/2;
+			long checksum = 0;
+
+			long stepsLeft = this.numSteps;
+			while (stepsLeft > 0) {
+				int count = (int) Math.min(stepsLeft, BATCH);
+				if (this.useStepSource) {
+					steps.next(moves, count);
+				}
+				else {
+					for (int i = 0; i < count; i++) {
+						moves[i] = (byte) rand.nextInt(this.neighborhood.size());
+					}
+				}
+				this.topology.walk(x, y, moves, count, this.neighborhood, pathX, pathY);
+				x = pathX[count - 1];
+				y = pathY[count - 1];
+				checksum += x + y;
+				stepsLeft -= count;
+			}
+			return checksum;
+		}
+	}
+}
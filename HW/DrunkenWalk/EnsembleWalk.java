@@ -0,0 +1,137 @@
+// EnsembleWalk.java
+// -- many independent drunks walking from the center of the same plane, split across worker threads
+//    - every walker has its own StepSource seeded from one seeded root, so the visit counts for a
+//      fixed seed are the same at any thread count
+//    - each thread counts its walkers' visits in its own histogram, so no counter is shared while
+//      walking; the histograms are summed once every walker is done
+//    - on the infinite plane only visits inside the width x height window are counted
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class EnsembleWalk {
+	private static final int BATCH = 4096; // number of steps drawn and taken at a time
+
+	private final Neighborhood neighborhood;
+	private final Topology topology;
+	private final long[] seeds; // random stream seed of each walker
+	private final int numSteps; // steps of each walker, counting the start as DrunkenWalk's drunkenWalk() does
+
+	// constructors
+	// params:
+	// - Neighborhood neighborhood = neighborhood the drunks walk in
+	// - Topology topology = plane the drunks walk on
+	// - SplittableRandom root = seeded source of the walkers' streams
+	// - int numWalkers = number of drunks
+	// - int numSteps = number of steps of each drunk, counting the start position as one, as a
+	//                 single drunken walk does: 0 visits nothing, 1 only the start
+	public EnsembleWalk(Neighborhood neighborhood, Topology topology, SplittableRandom root, int numWalkers, int numSteps) {
+		this.neighborhood = neighborhood;
+		this.topology = topology;
+		this.numSteps = numSteps;
+		// draw in one fixed order, so walker k always gets the same stream
+		this.seeds = new long[numWalkers];
+		for (int w = 0; w < numWalkers; w++) {
+			this.seeds[w] = root.nextLong();
+		}
+	}
+
+	// methods
+	// -------------------------------------------------------------------------------
+	// run(): walks every drunk and returns the number of visits to each pixel, pixel (x,y)
+	//        at [y*width + x]; each start position counts as a visit (if numSteps > 0)
+	// params:
+	// - int numThreads = number of worker threads
+	public long[] run(int numThreads) throws InterruptedException {
+		List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>(numThreads);
+		for (int t = 0; t < numThreads; t++) {
+			// contiguous runs of walkers, all walkers take the same number of steps
+			final int from = (int) ((long) this.seeds.length*t/numThreads);
+			final int to = (int) ((long) this.seeds.length*(t + 1)/numThreads);
+			tasks.add(new Callable<long[]>() {
+				public long[] call() {
+					return walk(from, to);
+				}
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "walk-worker");
+				thread.setDaemon(true); // never keep the app alive
+				return thread;
+			}
+		});
+		try {
+			long[] visits = new long[this.topology.getWidth()*this.topology.getHeight()];
+			for (Future<long[]> future : pool.invokeAll(tasks)) {
+				long[] histogram;
+				try {
+					histogram = future.get();
+				}
+				catch (ExecutionException exception) {
+					throw new IllegalStateException("walk worker failed", exception.getCause());
+				}
+				for (int i = 0; i < visits.length; i++) {
+					visits[i] += histogram[i];
+				}
+			}
+			return visits;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// -------------------------------------------------------------------------------
+	// walk(): walks drunks [from,to) on the calling thread and returns their visit counts
+	private long[] walk(int from, int to) {
+		int width = this.topology.getWidth();
+		int height = this.topology.getHeight();
+		long[] histogram = new long[width*height];
+		byte[] moves = new byte[BATCH]; // next steps, as neighborhood move codes
+		int[] pathX = new int[BATCH];   // positions
+		int[] pathY = new int[BATCH];   // after each step
+
+		if (this.numSteps == 0) {
+			return histogram; // no drunk even stands at the start
+		}
+		for (int w = from; w < to; w++) {
+			StepSource steps = new StepSource(this.neighborhood, this.seeds[w]);
+			int x = width/2;
+			int y = height/2;
+			histogram[y*width + x]++;
+
+			int stepsLeft = this.numSteps - 1; // the start was the first step
+			while (stepsLeft > 0) {
+				int count = Math.min(stepsLeft, BATCH);
+				steps.next(moves, count);
+				this.topology.walk(x, y, moves, count, this.neighborhood, pathX, pathY);
+
+				if (this.topology.isBounded()) {
+					for (int i = 0; i < count; i++) {
+						histogram[pathY[i]*width + pathX[i]]++;
+					}
+				}
+				else {
+					for (int i = 0; i < count; i++) {
+						if ((pathX[i] >= 0) && (pathX[i] < width) && (pathY[i] >= 0) && (pathY[i] < height)) {
+							histogram[pathY[i]*width + pathX[i]]++;
+						}
+					}
+				}
+				x = pathX[count - 1];
+				y = pathY[count - 1];
+				stepsLeft -= count;
+			}
+		}
+		return histogram;
+	}
+}
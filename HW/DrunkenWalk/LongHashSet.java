@@ -0,0 +1,146 @@
+// LongHashSet.java
+// -- a set of longs in one flat array, for sets of packed lattice coordinates too big for HashSet<Point>
+//    - open addressing with linear probing: a lookup hashes once and then scans neighboring slots,
+//      which usually share a cache line
+//    - keys are stored unboxed, so add() and contains() never allocate (except when add() grows the table)
+//    - slot value 0 marks an empty slot; the key 0 itself is tracked by a separate flag
+
+import java.util.Arrays;
+
+public class LongHashSet {
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_LOAD_PERCENT = 75; // grow when more than 3/4 of the slots are used
+
+	private long[] slots; // keys, 0 for empty
+	private int mask;     // slots.length - 1, a power of two minus one
+	private int used;     // non-empty slots
+	private boolean hasZero;
+
+	// constructors
+	public LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	// expectedSize = number of keys to make room for before the first growth
+	public LongHashSet(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while ((long) capacity*MAX_LOAD_PERCENT/100 < expectedSize) {
+			capacity <<= 1;
+		}
+		this.slots = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	// methods
+	public int size() {
+		return this.used + (this.hasZero ? 1 : 0);
+	}
+
+	// ------------------------------------------------------------------
+	// contains(): returns whether key is in the set
+	public boolean contains(long key) {
+		if (key == 0) {
+			return this.hasZero;
+		}
+		for (int i = slot(key); ; i = (i + 1) & this.mask) {
+			long k = this.slots[i];
+			if (k == key) {
+				return true;
+			}
+			if (k == 0) {
+				return false;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// add(): add key to the set; returns false if it was already there
+	public boolean add(long key) {
+		if (key == 0) {
+			boolean added = !this.hasZero;
+			this.hasZero = true;
+			return added;
+		}
+		for (int i = slot(key); ; i = (i + 1) & this.mask) {
+			long k = this.slots[i];
+			if (k == key) {
+				return false;
+			}
+			if (k == 0) {
+				this.slots[i] = key;
+				if (++this.used > (long) this.slots.length*MAX_LOAD_PERCENT/100) {
+					grow();
+				}
+				return true;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// remove(): remove key from the set; returns false if it wasn't there
+	public boolean remove(long key) {
+		if (key == 0) {
+			boolean removed = this.hasZero;
+			this.hasZero = false;
+			return removed;
+		}
+		int i = slot(key);
+		while (this.slots[i] != key) {
+			if (this.slots[i] == 0) {
+				return false;
+			}
+			i = (i + 1) & this.mask;
+		}
+
+		// shift later keys of the probe run back into the hole, so lookups never stop early
+		int hole = i;
+		for (int j = (hole + 1) & this.mask; this.slots[j] != 0; j = (j + 1) & this.mask) {
+			int home = slot(this.slots[j]);
+			// move the key unless its home lies cyclically in (hole, j]
+			if (((j - home) & this.mask) >= ((j - hole) & this.mask)) {
+				this.slots[hole] = this.slots[j];
+				hole = j;
+			}
+		}
+		this.slots[hole] = 0;
+		this.used--;
+		return true;
+	}
+
+	// ------------------------------------------------------------------
+	// clear(): remove every key, keeping the table's capacity
+	public void clear() {
+		Arrays.fill(this.slots, 0L);
+		this.used = 0;
+		this.hasZero = false;
+	}
+
+	// ------------------------------------------------------------------
+	// slot(): returns the home slot of key
+	private int slot(long key) {
+		// SplitMix64 finalizer, so neighboring coordinates land far apart
+		long z = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return (int) (z ^ (z >>> 31)) & this.mask;
+	}
+
+	// ------------------------------------------------------------------
+	// grow(): move every key into a table twice the size
+	private void grow() {
+		long[] old = this.slots;
+		if (old.length >= (1 << 30)) {
+			throw new IllegalStateException("LongHashSet cannot grow past 2^30 slots");
+		}
+		this.slots = new long[2*old.length];
+		this.mask = this.slots.length - 1;
+		for (long key : old) {
+			if (key != 0) {
+				int i = slot(key);
+				while (this.slots[i] != 0) {
+					i = (i + 1) & this.mask;
+				}
+				this.slots[i] = key;
+			}
+		}
+	}
+}
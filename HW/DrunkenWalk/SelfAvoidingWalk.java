@@ -0,0 +1,145 @@
+// SelfAvoidingWalk.java
+// -- walks on the infinite plane that never visit a site twice
+//    - self-avoiding walk: every step is drawn from the whole neighborhood; a step onto a visited
+//      site ends the attempt, and the walk starts over until an attempt reaches the requested
+//      length or the attempts run out, keeping the longest
+//    - growing self-avoiding walk: every step is drawn from the unvisited neighbors only, and the
+//      walk ends when there are none left (the walker is trapped) or it reaches the requested length
+//    - visited sites are packed (x,y) longs in a LongHashSet, so each candidate step is checked
+//      without allocating
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class SelfAvoidingWalk {
+	private final Neighborhood neighborhood;
+	private final SplittableRandom rand;
+	private final LongHashSet visited = new LongHashSet();
+
+	private int[] xs = new int[1024];       // positions of the longest walk, start at [0]
+	private int[] ys = new int[1024];
+	private byte[] moves = new byte[1024];  // moves[i] leads from position i to position i+1
+	private int length;                     // steps in the longest walk
+	private int attempts;                   // attempts made by the last walk()
+
+	// constructors
+	// params:
+	// - Neighborhood neighborhood = neighborhood the walker steps in
+	// - long seed = seed of the walker's steps
+	public SelfAvoidingWalk(Neighborhood neighborhood, long seed) {
+		this.neighborhood = neighborhood;
+		this.rand = new SplittableRandom(seed);
+	}
+
+	// methods
+	public int getLength() {
+		return this.length;
+	}
+
+	public int getAttempts() {
+		return this.attempts;
+	}
+
+	public int getX(int i) {
+		return this.xs[i];
+	}
+
+	public int getY(int i) {
+		return this.ys[i];
+	}
+
+	public byte getMove(int i) {
+		return this.moves[i];
+	}
+
+	// ---------------------------------------------------------------------------------
+	// walk(): walk from (startX,startY) and return the number of steps taken
+	// params:
+	// - int startX, startY = start position
+	// - int numSteps = requested number of steps
+	// - boolean growing = growing self-avoiding walk if true, self-avoiding walk otherwise
+	// - int maxAttempts = attempts a self-avoiding walk may make, ignored when growing
+	public int walk(int startX, int startY, int numSteps, boolean growing, int maxAttempts) {
+		this.length = 0;
+		this.attempts = 0;
+		int[] candidates = new int[this.neighborhood.size()];
+		// the current attempt is built past the best walk only once it is longer,
+		// so keep it in separate arrays until then
+		int[] tryX = new int[1024];
+		int[] tryY = new int[1024];
+		byte[] tryMoves = new byte[1024];
+
+		do {
+			this.attempts++;
+			int x = startX;
+			int y = startY;
+			this.visited.add(key(x, y));
+			tryX[0] = x;
+			tryY[0] = y;
+			int steps = 0;
+
+			while (steps < numSteps) {
+				int move;
+				if (growing) {
+					int free = 0;
+					for (int m = 0; m < candidates.length; m++) {
+						if (this.visited.contains(key(x + this.neighborhood.dx(m), y + this.neighborhood.dy(m))) == false) {
+							candidates[free++] = m;
+						}
+					}
+					if (free == 0) {
+						break; // trapped
+					}
+					move = candidates[this.rand.nextInt(free)];
+				}
+				else {
+					move = this.rand.nextInt(candidates.length);
+				}
+
+				x += this.neighborhood.dx(move);
+				y += this.neighborhood.dy(move);
+				if (this.visited.add(key(x, y)) == false) {
+					break; // stepped on itself, the attempt fails
+				}
+
+				if (steps + 1 == tryX.length) {
+					tryX = Arrays.copyOf(tryX, 2*tryX.length);
+					tryY = Arrays.copyOf(tryY, 2*tryY.length);
+					tryMoves = Arrays.copyOf(tryMoves, 2*tryMoves.length);
+				}
+				tryMoves[steps] = (byte) move;
+				steps++;
+				tryX[steps] = x;
+				tryY[steps] = y;
+			}
+
+			// forget this attempt's sites one by one, which is much cheaper than clearing
+			// a table that an earlier long attempt has grown
+			for (int i = 0; i <= steps; i++) {
+				this.visited.remove(key(tryX[i], tryY[i]));
+			}
+
+			if ((steps > this.length) || (this.attempts == 1)) {
+				// keep the longest attempt by swapping arrays
+				int[] swapX = this.xs;
+				int[] swapY = this.ys;
+				byte[] swapMoves = this.moves;
+				this.xs = tryX;
+				this.ys = tryY;
+				this.moves = tryMoves;
+				tryX = swapX;
+				tryY = swapY;
+				tryMoves = swapMoves;
+				this.length = steps;
+			}
+		} while (!growing && (this.length < numSteps) && (this.attempts < maxAttempts));
+
+		return this.length;
+	}
+
+	// ------------------------------------------------------------------
+	// key(): returns (x,y) packed into a long
+	private static long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,131 @@
+// SparsePlane.java
+// -- the pixels a drunk has visited on an unbounded plane, stored as 64x64 tiles of one bit per pixel
+//    - only tiles the walk has reached are allocated, so memory follows the area covered,
+//      not the number of steps or the extent of the plane
+//    - tiles are found by hashing their packed tile coordinates; a walk stays in one tile for
+//      many steps, so the last tile used is kept at hand and the hash is rarely consulted
+//    - keeps the bounding box of the visited pixels, so a trace can be exported without knowing
+//      in advance where the walk went
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class SparsePlane {
+	private static final int TILE_SHIFT = 6;                 // tiles are 64x64 pixels,
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1; // one long per tile row
+
+	private final HashMap<Long, long[]> tiles = new HashMap<Long, long[]>();
+	private long lastKey;    // key of lastTile
+	private long[] lastTile; // tile of the last visit, or null
+
+	private int minX = Integer.MAX_VALUE; // bounding box of the visited pixels
+	private int minY = Integer.MAX_VALUE;
+	private int maxX = Integer.MIN_VALUE;
+	private int maxY = Integer.MIN_VALUE;
+
+	// methods
+	public boolean isEmpty() {
+		return this.tiles.isEmpty();
+	}
+
+	public int getMinX() {
+		return this.minX;
+	}
+
+	public int getMinY() {
+		return this.minY;
+	}
+
+	public int getMaxX() {
+		return this.maxX;
+	}
+
+	public int getMaxY() {
+		return this.maxY;
+	}
+
+	// ------------------------------------------------------------------
+	// tileCount(): returns the number of tiles allocated
+	public int tileCount() {
+		return this.tiles.size();
+	}
+
+	// ------------------------------------------------------------------
+	// visit(): mark pixel (x,y) as visited
+	public void visit(int x, int y) {
+		long[] tile = tile(x >> TILE_SHIFT, y >> TILE_SHIFT, true);
+		tile[y & TILE_MASK] |= 1L << x; // shifts only use the low 6 bits of x
+		this.minX = Math.min(this.minX, x);
+		this.minY = Math.min(this.minY, y);
+		this.maxX = Math.max(this.maxX, x);
+		this.maxY = Math.max(this.maxY, y);
+	}
+
+	// ------------------------------------------------------------------
+	// visit(): mark pixels (xs[i],ys[i]) for i in [0,count) as visited
+	public void visit(int[] xs, int[] ys, int count) {
+		for (int i = 0; i < count; i++) {
+			visit(xs[i], ys[i]);
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// isVisited(): returns whether pixel (x,y) has been visited
+	public boolean isVisited(int x, int y) {
+		long[] tile = tile(x >> TILE_SHIFT, y >> TILE_SHIFT, false);
+		return (tile != null) && (((tile[y & TILE_MASK] >>> x) & 1L) != 0);
+	}
+
+	// ---------------------------------------------------------------------------------
+	// getRow(): copy pixels (x0,y), ..., (x0+width-1,y) into dst, pixel x0+i going to
+	//           bit (i & 63) of dst[i >>> 6]; bits past width may be set
+	public void getRow(int y, int x0, int width, long[] dst) {
+		int words = (width + 63) >>> 6;
+		Arrays.fill(dst, 0, words, 0L);
+
+		int ty = y >> TILE_SHIFT;
+		int first = x0 >> TILE_SHIFT;
+		int last = (x0 + width - 1) >> TILE_SHIFT;
+		for (int tx = first; tx <= last; tx++) {
+			long[] tile = tile(tx, ty, false);
+			if (tile == null) {
+				continue; // never visited
+			}
+			long bits = tile[y & TILE_MASK];
+			// position in dst of the tile's first pixel, negative if the tile starts left of x0
+			long offset = ((long) tx << TILE_SHIFT) - x0;
+			if (offset < 0) {
+				dst[0] |= bits >>> (int) -offset;
+			}
+			else {
+				int word = (int) (offset >>> 6);
+				int shift = (int) (offset & 63);
+				dst[word] |= bits << shift;
+				if ((shift != 0) && (word + 1 < words)) {
+					dst[word + 1] |= bits >>> (64 - shift);
+				}
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// tile(): returns tile (tx,ty), allocating it if create is true, or null if it doesn't exist
+	private long[] tile(int tx, int ty, boolean create) {
+		long key = ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+		if ((this.lastTile != null) && (key == this.lastKey)) {
+			return this.lastTile;
+		}
+
+		long[] tile = this.tiles.get(key);
+		if (tile == null) {
+			if (create == false) {
+				return null;
+			}
+			tile = new long[1 << TILE_SHIFT];
+			this.tiles.put(key, tile);
+		}
+		this.lastKey = key;
+		this.lastTile = tile;
+		return tile;
+	}
+}
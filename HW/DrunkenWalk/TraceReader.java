@@ -0,0 +1,149 @@
+// TraceReader.java
+// -- replays a drunken walk recorded by TraceWriter, without drawing any random numbers
+//    - the step codes are read through memory-mapped windows of the file
+//    - positions are rebuilt by running the codes through the walk's Topology
+//    - replaying from step k starts at the last keyframe at or before k, so any step range
+//      costs at most KEYFRAME_STEPS extra steps, however long the walk
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+public class TraceReader implements Closeable {
+	private static final int BATCH = 4096;           // steps decoded and taken at a time
+	private static final long WINDOW_WORDS = 1L << 24; // words mapped at a time (128MB)
+
+	private final FileChannel channel;
+	private final Neighborhood neighborhood;
+	private final Topology topology;
+	private final int startX;
+	private final int startY;
+	private final long numSteps;
+	private final int[] keyframes; // (x,y) after KEYFRAME_STEPS, 2*KEYFRAME_STEPS, ... steps
+	private final int bits;        // bits per step code
+	private final int perWord;     // step codes per word
+
+	// constructors
+	public TraceReader(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceWriter.HEADER_SIZE);
+			if ((header.getInt() != TraceWriter.MAGIC) || (header.getInt() != TraceWriter.VERSION)) {
+				throw new IOException(file + " is not a drunken walk trace");
+			}
+			this.bits = header.getInt();
+			this.neighborhood = (this.bits == Neighborhood.MOORE.bits()) ? Neighborhood.MOORE : Neighborhood.VON_NEUMANN;
+			this.perWord = 64/this.bits;
+			int width = header.getInt();
+			int height = header.getInt();
+			this.startX = header.getInt();
+			this.startY = header.getInt();
+			this.numSteps = header.getLong();
+			long indexOffset = header.getLong();
+			byte[] name = new byte[header.getShort()];
+			header.get(name);
+			this.topology = Topology.forName(new String(name, StandardCharsets.UTF_8), width, height);
+
+			ByteBuffer index = this.channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, this.channel.size() - indexOffset);
+			this.keyframes = new int[2*index.getInt()];
+			index.asIntBuffer().get(this.keyframes);
+		}
+		catch (IOException | RuntimeException exception) {
+			this.channel.close();
+			throw exception;
+		}
+	}
+
+	// methods
+	public Neighborhood getNeighborhood() {
+		return this.neighborhood;
+	}
+
+	public Topology getTopology() {
+		return this.topology;
+	}
+
+	public int getStartX() {
+		return this.startX;
+	}
+
+	public int getStartY() {
+		return this.startY;
+	}
+
+	public long getNumSteps() {
+		return this.numSteps;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// replay(): visit the walker's positions after steps from, from+1, ..., to in plane
+	//           (step 0 being the start position), and return the position after step to
+	//           as {x, y}
+	// params:
+	// - long from, to = step range, 0 <= from <= to <= getNumSteps()
+	// - SparsePlane plane = plane to visit the positions in
+	public int[] replay(long from, long to, SparsePlane plane) throws IOException {
+		// start at the last keyframe at or before from
+		int keyframe = (int) Math.min(from/TraceWriter.KEYFRAME_STEPS, this.keyframes.length/2);
+		long step = (long) keyframe*TraceWriter.KEYFRAME_STEPS;
+		int x = (keyframe == 0) ? this.startX : this.keyframes[2*keyframe - 2];
+		int y = (keyframe == 0) ? this.startY : this.keyframes[2*keyframe - 1];
+		if (step == from) {
+			plane.visit(x, y); // the start position, or the keyframe from starts on
+		}
+
+		byte[] moves = new byte[BATCH];
+		int[] pathX = new int[BATCH];
+		int[] pathY = new int[BATCH];
+		LongBuffer words = null;
+		long firstWord = 0; // index of words' first word
+		long wordIndex = step/this.perWord;
+		int code = (int) (step % this.perWord); // next code in the current word
+		long word = 0L;
+
+		while (step < to) {
+			int count = (int) Math.min(to - step, BATCH);
+			for (int i = 0; i < count; i++) {
+				if ((i == 0) || (code == 0)) {
+					if ((words == null) || (wordIndex - firstWord >= words.capacity())) {
+						firstWord = wordIndex;
+						words = map(firstWord);
+					}
+					word = words.get((int) (wordIndex - firstWord)) >>> (code*this.bits);
+				}
+				moves[i] = (byte) (word & ((1 << this.bits) - 1));
+				word >>>= this.bits;
+				if (++code == this.perWord) {
+					code = 0;
+					wordIndex++;
+				}
+			}
+			this.topology.walk(x, y, moves, count, this.neighborhood, pathX, pathY);
+
+			// only visit the steps from from on
+			int first = (int) Math.max(0, Math.min(from - step - 1, count));
+			for (int i = first; i < count; i++) {
+				plane.visit(pathX[i], pathY[i]);
+			}
+			x = pathX[count - 1];
+			y = pathY[count - 1];
+			step += count;
+		}
+		return new int[] {x, y};
+	}
+
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	// ------------------------------------------------------------------
+	// map(): returns a window of the step words starting at word first
+	private LongBuffer map(long first) throws IOException {
+		long totalWords = (this.numSteps + this.perWord - 1)/this.perWord;
+		long length = Math.min(WINDOW_WORDS, totalWords - first);
+		return this.channel.map(FileChannel.MapMode.READ_ONLY, TraceWriter.HEADER_SIZE + 8*first, 8*length).asLongBuffer();
+	}
+}
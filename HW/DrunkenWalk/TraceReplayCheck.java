@@ -0,0 +1,92 @@
+// TraceReplayCheck.java
+// -- checks TraceReader.replay() against the positions of the walk it was recorded from
+//    - records a walk of a few keyframes' worth of steps to a temporary trace, keeping every
+//      position in memory as well
+//    - replays step ranges starting before, on and just after a keyframe (and empty ranges on
+//      one), and compares the visited pixels and end position with the recorded positions
+//    - prints every failed range and exits with status 1 if any failed
+//
+// usage: java TraceReplayCheck
+
+import java.io.File;
+import java.io.IOException;
+
+public class TraceReplayCheck {
+	private static final int BATCH = 4096;
+	private static final long SEED = 42L;
+	private static final int KEYFRAME = TraceWriter.KEYFRAME_STEPS;
+	private static final int NUM_STEPS = 3*KEYFRAME + 1234;
+
+	public static void main(String[] args) throws IOException {
+		Topology topology = Topology.forName("infinite", 401, 401);
+		Neighborhood neighborhood = Neighborhood.MOORE;
+		int[] xs = new int[NUM_STEPS + 1]; // position after step k, step 0 being the start
+		int[] ys = new int[NUM_STEPS + 1];
+
+		File file = File.createTempFile("walk", ".trace");
+		file.deleteOnExit();
+		try (TraceWriter trace = new TraceWriter(file, neighborhood, topology, 200, 200)) {
+			StepSource steps = new StepSource(neighborhood, SEED);
+			byte[] moves = new byte[BATCH];
+			int[] pathX = new int[BATCH];
+			int[] pathY = new int[BATCH];
+			xs[0] = 200;
+			ys[0] = 200;
+			for (int step = 0; step < NUM_STEPS; ) {
+				int count = Math.min(NUM_STEPS - step, BATCH);
+				steps.next(moves, count);
+				topology.walk(xs[step], ys[step], moves, count, neighborhood, pathX, pathY);
+				trace.write(moves, count, pathX, pathY);
+				System.arraycopy(pathX, 0, xs, step + 1, count);
+				System.arraycopy(pathY, 0, ys, step + 1, count);
+				step += count;
+			}
+		}
+
+		long[][] ranges = {
+			{ 0, 0 }, { 0, 100 },
+			{ KEYFRAME - 10, KEYFRAME + 10 },
+			{ KEYFRAME, KEYFRAME }, { KEYFRAME, KEYFRAME + 100 },
+			{ KEYFRAME + 1, KEYFRAME + 100 },
+			{ 2*KEYFRAME, 2*KEYFRAME }, { 2*KEYFRAME, 3*KEYFRAME },
+			{ 3*KEYFRAME, NUM_STEPS }, { NUM_STEPS, NUM_STEPS } };
+		int failed = 0;
+		try (TraceReader reader = new TraceReader(file)) {
+			for (long[] range : ranges) {
+				if (!check(reader, range[0], range[1], xs, ys)) {
+					System.out.println("FAILED replay(" + range[0] + ", " + range[1] + ")");
+					failed++;
+				}
+			}
+		}
+		System.out.println((ranges.length - failed) + " of " + ranges.length + " ranges replayed correctly");
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+	// ------------------------------------------------------------------------------
+	// check(): returns whether replaying steps [from,to] visits exactly the recorded positions
+	//          after those steps and ends on the position after step to
+	private static boolean check(TraceReader reader, long from, long to, int[] xs, int[] ys) throws IOException {
+		SparsePlane expected = new SparsePlane();
+		for (int step = (int) from; step <= to; step++) {
+			expected.visit(xs[step], ys[step]);
+		}
+		SparsePlane replayed = new SparsePlane();
+		int[] end = reader.replay(from, to, replayed);
+		if ((end[0] != xs[(int) to]) || (end[1] != ys[(int) to]) || (replayed.isEmpty())
+		    || (replayed.getMinX() != expected.getMinX()) || (replayed.getMaxX() != expected.getMaxX())
+		    || (replayed.getMinY() != expected.getMinY()) || (replayed.getMaxY() != expected.getMaxY())) {
+			return false;
+		}
+		for (int y = expected.getMinY(); y <= expected.getMaxY(); y++) {
+			for (int x = expected.getMinX(); x <= expected.getMaxX(); x++) {
+				if (replayed.isVisited(x, y) != expected.isVisited(x, y)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,156 @@
+// TraceWriter.java
+// -- records a drunken walk to a file as packed step codes, so it can be replayed later by TraceReader
+//    - a von Neumann step takes 2 bits and a Moore step 3, packed 32 or 21 to a 64-bit word,
+//      so 10^9 Moore steps take about 381MB instead of 8GB of int coordinates
+//    - words are gathered in a buffer and written to the file channel a buffer at a time
+//    - every KEYFRAME_STEPS steps the walker's position is kept in an index written after the steps,
+//      so a reader can start replaying near any step instead of at the start
+//
+// file layout (big-endian):
+//    header (HEADER_SIZE bytes): MAGIC, VERSION, bits per step, width, height, start x, start y,
+//                                number of steps (long), index offset (long), topology name (short length + UTF-8)
+//    steps:                      words of packed codes, step k at bits (k % perWord)*bits of word k / perWord
+//    index:                      number of keyframes, then (x,y) after KEYFRAME_STEPS, 2*KEYFRAME_STEPS, ... steps
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TraceWriter implements Closeable {
+	static final int MAGIC   = 0x44575452; // "DWTR"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+	static final int KEYFRAME_STEPS = 1 << 20; // steps between index entries
+
+	private static final int BUFFER_SIZE = 1 << 16; // bytes written to the channel at a time
+
+	private final FileChannel channel;
+	private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+	private final Topology topology;
+	private final int startX;
+	private final int startY;
+	private final int bits;    // bits per step code
+	private final int perWord; // step codes per word
+
+	private long word;         // codes of the word being filled, lowest first
+	private int inWord;        // number of codes in word
+	private long numSteps;     // steps written so far
+	private int[] keyframes = new int[64]; // (x,y) pairs of the index
+	private int numKeyframes;
+
+	// constructors
+	// params:
+	// - File file = file to write, replaced if it exists
+	// - Neighborhood neighborhood = neighborhood of the walk's step codes
+	// - Topology topology = plane the walk is on
+	// - int startX, startY = start position
+	public TraceWriter(File file, Neighborhood neighborhood, Topology topology, int startX, int startY) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		                                StandardOpenOption.WRITE);
+		this.topology = topology;
+		this.startX = startX;
+		this.startY = startY;
+		this.bits = neighborhood.bits();
+		this.perWord = 64/this.bits;
+		this.channel.position(HEADER_SIZE); // the header is written on close, once the step count is known
+	}
+
+	// methods
+	// ---------------------------------------------------------------------------------
+	// write(): append count steps of the walk
+	// params:
+	// - byte[] moves = step codes, at [0,count)
+	// - int count = number of steps
+	// - int[] pathX, pathY = positions after each step, as computed by Topology.walk()
+	public void write(byte[] moves, int count, int[] pathX, int[] pathY) throws IOException {
+		for (int i = 0; i < count; i++) {
+			this.word |= (long) moves[i] << (this.inWord*this.bits);
+			if (++this.inWord == this.perWord) {
+				putWord();
+			}
+		}
+
+		// positions after every multiple of KEYFRAME_STEPS in (numSteps, numSteps+count]
+		long next = (this.numSteps/KEYFRAME_STEPS + 1)*KEYFRAME_STEPS;
+		for (long step = next; step <= this.numSteps + count; step += KEYFRAME_STEPS) {
+			int i = (int) (step - this.numSteps - 1);
+			addKeyframe(pathX[i], pathY[i]);
+		}
+		this.numSteps += count;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// close(): write the last word, the index and the header, and close the file
+	public void close() throws IOException {
+		try {
+			if (this.inWord > 0) {
+				putWord();
+			}
+			long indexOffset = this.channel.position() + this.buf.position();
+			putInt(this.numKeyframes);
+			for (int i = 0; i < 2*this.numKeyframes; i++) {
+				putInt(this.keyframes[i]);
+			}
+			flush();
+
+			byte[] name = this.topology.getName().getBytes(StandardCharsets.UTF_8);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(this.bits);
+			header.putInt(this.topology.getWidth());
+			header.putInt(this.topology.getHeight());
+			header.putInt(this.startX);
+			header.putInt(this.startY);
+			header.putLong(this.numSteps);
+			header.putLong(indexOffset);
+			header.putShort((short) name.length);
+			header.put(name);
+			header.rewind();
+			this.channel.write(header, 0);
+		}
+		finally {
+			this.channel.close();
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// putWord(): append the word being filled and start a new one
+	private void putWord() throws IOException {
+		if (this.buf.remaining() < 8) {
+			flush();
+		}
+		this.buf.putLong(this.word);
+		this.word = 0L;
+		this.inWord = 0;
+	}
+
+	private void putInt(int value) throws IOException {
+		if (this.buf.remaining() < 4) {
+			flush();
+		}
+		this.buf.putInt(value);
+	}
+
+	// ------------------------------------------------------------------
+	// flush(): write the buffered bytes to the channel
+	private void flush() throws IOException {
+		this.buf.flip();
+		while (this.buf.hasRemaining()) {
+			this.channel.write(this.buf);
+		}
+		this.buf.clear();
+	}
+
+	private void addKeyframe(int x, int y) {
+		if (2*this.numKeyframes == this.keyframes.length) {
+			this.keyframes = Arrays.copyOf(this.keyframes, 2*this.keyframes.length);
+		}
+		this.keyframes[2*this.numKeyframes] = x;
+		this.keyframes[2*this.numKeyframes + 1] = y;
+		this.numKeyframes++;
+	}
+}
@@ -0,0 +1,243 @@
+// WalkStats.java
+// -- statistics of a drunken walk, updated batch by batch as the walk runs
+//    - squared displacement from the start, its mean over the walk, and samples at steps 1, 2, 4, 8, ...
+//      from which the diffusion exponent (2*Hurst exponent) is fitted
+//    - displacement is measured in the plane's covering space: a step through a toroidal edge
+//      counts as the one-pixel step it is, and on the Klein bottle y is mirrored after each crossing
+//    - distinct sites visited: counted exactly with one bit per pixel on bounded planes, and estimated
+//      with a HyperLogLog sketch (about 1% error) on the infinite plane, so memory never grows with steps
+//    - returns to the start site, the step of the first return, the fraction of the plane covered and
+//      the step at which every pixel had been visited
+
+public class WalkStats {
+	private static final int SAMPLES = 63;         // squared displacement at steps 2^0, ..., 2^62
+	private static final int MIN_FIT_SAMPLE = 4;   // fit from step 16 on, before the lattice stops mattering
+	private static final int HLL_BITS = 14;        // HyperLogLog registers = 2^HLL_BITS
+
+	private final int startX;
+	private final int startY;
+	private final boolean bounded;  // positions stay inside the plane
+	private final boolean klein;    // y is mirrored whenever x wraps around
+	private final int width;        // plane width
+	private final long area;        // number of pixels in the plane
+	private final long[] visited;   // one bit per pixel on bounded planes, or null
+	private final byte[] registers; // HyperLogLog registers on the infinite plane, or null
+
+	private long steps;
+	private long dx;            // displacement from the start, in covering space
+	private long dy;
+	private int ySign = 1;      // -1 while the Klein bottle has mirrored y
+	private double sumSquared;  // sum of the squared displacements after each step
+	private final double[] samples = new double[SAMPLES];
+	private long distinct;      // distinct sites on bounded planes
+	private long returns;       // returns to the start site
+	private long firstReturn = -1;
+	private long coverStep = -1;
+
+	// constructors
+	// params:
+	// - Topology topology = plane the walk is on
+	// - int startX, startY = start position, counted as visited
+	public WalkStats(Topology topology, int startX, int startY) {
+		this.startX = startX;
+		this.startY = startY;
+		this.bounded = topology.isBounded();
+		this.klein = topology.getName().equals("klein");
+		this.area = (long) topology.getWidth()*topology.getHeight();
+		this.visited = this.bounded ? new long[(int) ((this.area + 63)/64)] : null;
+		this.registers = this.bounded ? null : new byte[1 << HLL_BITS];
+		this.width = topology.getWidth();
+		visit(startX, startY);
+	}
+
+	// methods
+	// ---------------------------------------------------------------------------------
+	// record(): update the statistics with count more steps
+	// params:
+	// - byte[] moves = step codes, at [0,count)
+	// - int count = number of steps
+	// - Neighborhood neighborhood = offsets of the step codes
+	// - int prevX, prevY = position before the first step
+	// - int[] pathX, pathY = positions after each step, as computed by Topology.walk()
+	public void record(byte[] moves, int count, Neighborhood neighborhood, int prevX, int prevY, int[] pathX, int[] pathY) {
+		for (int i = 0; i < count; i++) {
+			int x = pathX[i];
+			int y = pathY[i];
+			int stepX = x - prevX;
+			int stepY = y - prevY;
+			boolean wrapX = (stepX > 1) || (stepX < -1);
+			if (wrapX || (stepY > 1) || (stepY < -1)) {
+				// went through an edge; the move itself is the step taken
+				stepX = neighborhood.dx(moves[i]);
+				stepY = neighborhood.dy(moves[i]);
+			}
+			this.dx += stepX;
+			this.dy += this.ySign*stepY;
+			if (wrapX && this.klein) {
+				this.ySign = -this.ySign;
+			}
+			prevX = x;
+			prevY = y;
+
+			this.steps++;
+			double squared = (double) this.dx*this.dx + (double) this.dy*this.dy;
+			this.sumSquared += squared;
+			if ((this.steps & (this.steps - 1)) == 0) {
+				this.samples[63 - Long.numberOfLeadingZeros(this.steps)] = squared;
+			}
+
+			if ((x == this.startX) && (y == this.startY)) {
+				if (this.returns == 0) {
+					this.firstReturn = this.steps;
+				}
+				this.returns++;
+			}
+			visit(x, y);
+		}
+	}
+
+	public long getSteps() {
+		return this.steps;
+	}
+
+	// ------------------------------------------------------------------
+	// getSquaredDisplacement(): returns the squared distance from the start now
+	public double getSquaredDisplacement() {
+		return (double) this.dx*this.dx + (double) this.dy*this.dy;
+	}
+
+	// ------------------------------------------------------------------
+	// getMeanSquaredDisplacement(): returns the squared distance from the start, averaged over every step
+	public double getMeanSquaredDisplacement() {
+		return (this.steps == 0) ? 0.0 : this.sumSquared/this.steps;
+	}
+
+	// ------------------------------------------------------------------
+	// getSquaredDisplacementAt(): returns the squared distance from the start after step 2^k,
+	//                             or NaN if the walk is shorter than that
+	public double getSquaredDisplacementAt(int k) {
+		return ((k < 0) || (k >= SAMPLES) || ((1L << k) > this.steps)) ? Double.NaN : this.samples[k];
+	}
+
+	// ---------------------------------------------------------------------------------
+	// getDiffusionExponent(): returns the least squares slope of log(squared displacement)
+	//                         against log(step) over the samples, about 1 for a free random walk
+	//                         and lower once the walk feels the edges; NaN if there are too few samples
+	public double getDiffusionExponent() {
+		double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		for (int k = MIN_FIT_SAMPLE; (k < SAMPLES) && ((1L << k) <= this.steps); k++) {
+			if (this.samples[k] > 0) {
+				double x = k*Math.log(2);
+				double y = Math.log(this.samples[k]);
+				n++;
+				sumX += x;
+				sumY += y;
+				sumXX += x*x;
+				sumXY += x*y;
+			}
+		}
+		if (n < 2) {
+			return Double.NaN;
+		}
+		return (n*sumXY - sumX*sumY)/(n*sumXX - sumX*sumX);
+	}
+
+	// ------------------------------------------------------------------
+	// getDistinctSites(): returns the number of pixels visited, exact on bounded planes
+	//                     and estimated on the infinite plane
+	public long getDistinctSites() {
+		return this.bounded ? this.distinct : estimateDistinct();
+	}
+
+	public boolean isDistinctExact() {
+		return this.bounded;
+	}
+
+	public long getReturns() {
+		return this.returns;
+	}
+
+	// ------------------------------------------------------------------
+	// getFirstReturn(): returns the step of the first return to the start site, or -1
+	public long getFirstReturn() {
+		return this.firstReturn;
+	}
+
+	// ------------------------------------------------------------------
+	// getCoverFraction(): returns the fraction of the plane's pixels visited, NaN on the infinite plane
+	public double getCoverFraction() {
+		return this.bounded ? (double) this.distinct/this.area : Double.NaN;
+	}
+
+	// ------------------------------------------------------------------
+	// getCoverStep(): returns the step at which every pixel had been visited, or -1
+	public long getCoverStep() {
+		return this.coverStep;
+	}
+
+	public String toString() {
+		return String.format("steps: %d%n"
+		                     + "squared displacement: %.1f%n"
+		                     + "mean squared displacement: %.1f%n"
+		                     + "diffusion exponent: %.3f%n"
+		                     + "distinct sites: %s%d%n"
+		                     + "returns to start: %d (first at step %d)%n"
+		                     + "cover fraction: %.4f (covered at step %d)",
+		                     this.steps, getSquaredDisplacement(), getMeanSquaredDisplacement(), getDiffusionExponent(),
+		                     this.bounded ? "" : "~", getDistinctSites(), this.returns, this.firstReturn,
+		                     getCoverFraction(), this.coverStep);
+	}
+
+	// ------------------------------------------------------------------
+	// visit(): count pixel (x,y) as visited
+	private void visit(int x, int y) {
+		if (this.bounded) {
+			long i = (long) y*this.width + x;
+			long bit = 1L << i;
+			int word = (int) (i >>> 6);
+			if ((this.visited[word] & bit) == 0) {
+				this.visited[word] |= bit;
+				if (++this.distinct == this.area) {
+					this.coverStep = this.steps;
+				}
+			}
+		}
+		else {
+			// HyperLogLog: the top bits of the hash pick a register, which keeps the longest run
+			// of leading zeros seen in the remaining bits
+			long hash = mix(((long) x << 32) | (y & 0xFFFFFFFFL));
+			int register = (int) (hash >>> (64 - HLL_BITS));
+			int rank = Long.numberOfLeadingZeros((hash << HLL_BITS) | (1L << (HLL_BITS - 1))) + 1;
+			if (rank > this.registers[register]) {
+				this.registers[register] = (byte) rank;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// estimateDistinct(): returns the HyperLogLog estimate of the distinct sites
+	private long estimateDistinct() {
+		int m = this.registers.length;
+		double sum = 0.0;
+		int zeros = 0;
+		for (byte rank : this.registers) {
+			sum += Math.scalb(1.0, -rank);
+			if (rank == 0) {
+				zeros++;
+			}
+		}
+		double estimate = (0.7213/(1.0 + 1.079/m))*m*m/sum;
+		if ((estimate <= 2.5*m) && (zeros > 0)) {
+			estimate = m*Math.log((double) m/zeros); // linear counting is better for few sites
+		}
+		return Math.round(estimate);
+	}
+
+	// ------------------------------------------------------------------
+	// mix(): SplitMix64 finalizer, spreads packed coordinates over all 64 bits
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
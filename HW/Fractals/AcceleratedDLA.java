@@ -0,0 +1,133 @@
+// AcceleratedDLA.java
+// -- diffusion limited aggregation where particles far from the crystal jump instead of stepping
+//    - a DistanceField tells how far each particle is from the nearest seed or stuck particle;
+//      at distance d it can wander anywhere within d-2 without touching the crystal
+//    - instead of walking out of that disc one pixel at a time, the particle jumps straight to a
+//      uniformly random point on its edge, which is where an unbiased random walk first leaves a disc
+//    - the jump is charged the expected number of Moore steps needed to cover that radius, so the
+//      maximum number of steps still bounds how far each particle wanders
+//    - discs never reach the image edges, so near the edges particles step as in fractalSim()
+
+import java.util.Random;
+
+public class AcceleratedDLA {
+	// a Moore step moves 1.5 squared pixels on average, so reaching radius r takes about r*r/1.5 steps
+	private static final double STEPS_PER_SQUARED_RADIUS = 1.0/1.5;
+	private static final int MIN_JUMP = 2; // shorter jumps save less than they cost
+
+	private final Lattice grid;         // seeds and stuck particles
+	private final DistanceField field;  // distance to the nearest seed or stuck particle
+	private final int range;            // particles move within [0,range) x [0,range)
+	private final Topology topology;    // how particles step across the edges
+	private final Random rand;
+
+	private final int[] xs;   // x positions, live particles are at [0,count)
+	private final int[] ys;   // y positions, live particles are at [0,count)
+	private final int[] ages; // steps taken (or charged for jumps) by each particle
+	private final byte[] moves; // move code of each stepping particle
+	private int count;        // number of live particles
+
+	// constructors
+	// params:
+	// - Lattice grid = seeds and stuck particles
+	// - DistanceField field = distances to grid's occupied pixels, kept up to date by this simulation
+	// - String topology = "toroid", "bounded", or another bounded topology from Topology.forName()
+	// - Random r = source of particle positions, steps and jumps
+	// - int numParticles = number of particles to spawn
+	public AcceleratedDLA(Lattice grid, DistanceField field, String topology, Random r, int numParticles) {
+		this.grid = grid;
+		this.field = field;
+		this.range = grid.getSize();
+		this.topology = Topology.forName(topology, this.range, this.range);
+		this.rand = r;
+		this.xs = new int[numParticles];
+		this.ys = new int[numParticles];
+		this.ages = new int[numParticles];
+		this.moves = new byte[numParticles];
+
+		// create randomly positioned particles
+		for (int i = 0; i < numParticles; i++) {
+			this.xs[i] = this.rand.nextInt(this.range);
+			this.ys[i] = this.rand.nextInt(this.range);
+		}
+		this.count = numParticles;
+	}
+
+	// methods
+	public int size() {
+		return this.count;
+	}
+
+	// -------------------------------------------------------------------------------
+	// run(): moves particles until each of them is stuck or has used up maxNumSteps, or the
+	//        monitor stops the run; returns the number of rounds taken, each round moving
+	//        every live particle once
+	public int run(int maxNumSteps, SimMonitor monitor) {
+		int rounds = 0;
+		while ((this.count > 0) && monitor.proceed()) {
+			stick();
+			move(maxNumSteps);
+			rounds++;
+		}
+		return rounds;
+	}
+
+	// ------------------------------------------------------------------------------
+	// stick(): occupy the grid at every live particle next to a seed or stuck particle and remove it
+	private void stick() {
+		int i = 0;
+		while (i < this.count) {
+			int x = this.xs[i];
+			int y = this.ys[i];
+			// beyond distance 1 there is no occupied neighbor to check for
+			if ((this.field.get(x, y) <= 1) && this.grid.hasOccupiedNeighbor(x, y)) {
+				this.grid.occupy(x, y);
+				this.field.occupy(x, y);
+				remove(i); // the particle swapped into i is checked next
+			}
+			else {
+				i++;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------
+	// move(): jump or step every live particle, removing those that have used up maxNumSteps
+	private void move(int maxNumSteps) {
+		int max = this.range - 1;
+		int i = 0;
+		while (i < this.count) {
+			int x = this.xs[i];
+			int y = this.ys[i];
+			// stay clear of the crystal and of the edges
+			int radius = Math.min(this.field.get(x, y) - 2, Math.min(Math.min(x, y), Math.min(max - x, max - y)));
+			if (radius >= MIN_JUMP) {
+				double angle = 2.0*Math.PI*this.rand.nextDouble();
+				this.xs[i] = x + (int) Math.round(radius*Math.cos(angle));
+				this.ys[i] = y + (int) Math.round(radius*Math.sin(angle));
+				this.ages[i] += (int) Math.ceil(radius*radius*STEPS_PER_SQUARED_RADIUS);
+			}
+			else {
+				this.moves[i] = (byte) this.rand.nextInt(8);
+				this.topology.step(this.xs, this.ys, this.moves, i, i + 1, Neighborhood.MOORE);
+				this.ages[i]++;
+			}
+
+			if (this.ages[i] >= maxNumSteps) {
+				remove(i); // out of steps; the particle swapped into i is moved next
+			}
+			else {
+				i++;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// remove(): swap live particle i with the last live particle and drop it from the live range
+	private void remove(int i) {
+		int last = --this.count;
+		this.xs[i] = this.xs[last];
+		this.ys[i] = this.ys[last];
+		this.ages[i] = this.ages[last];
+	}
+}
@@ -0,0 +1,166 @@
+// Checkpoint.java
+// -- binary snapshot of a running fractalSim(), so a long run can be resumed after a crash or restart
+//    - holds the topology, step count, seeds, occupancy grid, live particle positions and the Random state
+//    - written with FileChannel.write() into a temporary file that then replaces the old checkpoint,
+//      so a crash while saving never leaves a half-written checkpoint behind; neither file is ever
+//      memory-mapped, since a mapped file can't be replaced or deleted on Windows
+//    - the Random is read back through a filter that accepts nothing but java.util.Random, so a
+//      tampered checkpoint can't make ObjectInputStream build any other object
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class Checkpoint {
+	private static final int MAGIC   = 0x444C4143; // "DLAC"
+	private static final int VERSION = 1;
+
+	// the serialized Random: one object of one class, with a few primitive fields
+	private static final ObjectInputFilter RANDOM_FILTER
+		= ObjectInputFilter.Config.createFilter("maxdepth=1;maxrefs=1;maxbytes=1024;java.util.Random;!*");
+
+	private final String topology;
+	private final int step;        // next step to take
+	private final int maxNumSteps;
+	private final int[] seeds;     // seed positions (seeds[2*i] = x, seeds[2*i+1] = y)
+	private final OccupancyGrid grid;
+	private final ParticleEngine particles;
+	private final Random rand;     // the Random shared by the particles
+
+	// constructors
+	public Checkpoint(String topology, int step, int maxNumSteps, int[] seeds, OccupancyGrid grid, ParticleEngine particles, Random rand) {
+		this.topology = topology;
+		this.step = step;
+		this.maxNumSteps = maxNumSteps;
+		this.seeds = seeds;
+		this.grid = grid;
+		this.particles = particles;
+		this.rand = rand;
+	}
+
+	// methods
+	public String getTopology() {
+		return this.topology;
+	}
+
+	public int getStep() {
+		return this.step;
+	}
+
+	public int getMaxNumSteps() {
+		return this.maxNumSteps;
+	}
+
+	public int[] getSeeds() {
+		return this.seeds;
+	}
+
+	public OccupancyGrid getGrid() {
+		return this.grid;
+	}
+
+	public ParticleEngine getParticles() {
+		return this.particles;
+	}
+
+	public Random getRandom() {
+		return this.rand;
+	}
+
+	// -----------------------------------------------------------------
+	// save(): write this checkpoint to file, replacing any previous one
+	public void save(File file) throws IOException {
+		byte[] topologyBytes = this.topology.getBytes(StandardCharsets.UTF_8);
+		byte[] randBytes = serialize(this.rand);
+		long length = 4L*8 + topologyBytes.length + 4L*this.seeds.length + randBytes.length
+		              + this.grid.byteSize() + this.particles.byteSize();
+
+		Path target = file.toPath();
+		Path temp = target.resolveSibling(file.getName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		                                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(length));
+			buf.putInt(MAGIC);
+			buf.putInt(VERSION);
+			buf.putInt(this.grid.getSize());
+			buf.putInt(this.step);
+			buf.putInt(this.maxNumSteps);
+			buf.putInt(topologyBytes.length);
+			buf.put(topologyBytes);
+			buf.putInt(this.seeds.length);
+			buf.asIntBuffer().put(this.seeds);
+			buf.position(buf.position() + 4*this.seeds.length);
+			buf.putInt(randBytes.length);
+			buf.put(randBytes);
+			this.grid.writeTo(buf);
+			this.particles.writeTo(buf);
+			buf.flip();
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			channel.force(true);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// -----------------------------------------------------------------
+	// load(): read a checkpoint written by save()
+	public static Checkpoint load(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+			while (buf.hasRemaining()) {
+				if (channel.read(buf) < 0) {
+					throw new EOFException(file + " ended early");
+				}
+			}
+			buf.flip();
+			if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION)) {
+				throw new IOException(file + " is not a crystal checkpoint");
+			}
+			int imgSize = buf.getInt();
+			int step = buf.getInt();
+			int maxNumSteps = buf.getInt();
+			byte[] topologyBytes = new byte[buf.getInt()];
+			buf.get(topologyBytes);
+			String topology = new String(topologyBytes, StandardCharsets.UTF_8);
+			int[] seeds = new int[buf.getInt()];
+			buf.asIntBuffer().get(seeds);
+			buf.position(buf.position() + 4*seeds.length);
+			byte[] randBytes = new byte[buf.getInt()];
+			buf.get(randBytes);
+			Random rand = deserialize(randBytes);
+
+			OccupancyGrid grid = new OccupancyGrid(imgSize);
+			grid.readFrom(buf);
+			ParticleEngine particles = new ParticleEngine(grid, topology, rand, buf.getInt(buf.position()));
+			particles.readFrom(buf);
+
+			return new Checkpoint(topology, step, maxNumSteps, seeds, grid, particles, rand);
+		}
+	}
+
+	// Random keeps its state private, but serializes it
+	private static byte[] serialize(Random rand) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(rand);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Random deserialize(byte[] bytes) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			in.setObjectInputFilter(RANDOM_FILTER);
+			return (Random) in.readObject();
+		}
+		catch (ClassNotFoundException exception) {
+			throw new IOException("checkpoint holds no Random", exception);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+// DistanceField.java
+// -- distance from every pixel to the nearest seed or stuck particle of a DLA simulation
+//    - distances are Chebyshev (Moore neighborhood) distances, capped at MAX_DISTANCE
+//    - updated incrementally as pixels are occupied, so only the square around the new pixel is touched
+//    - a particle at distance d can wander anywhere within d-2 of where it is without touching the crystal
+//    - for lattices too large to hold a byte per pixel, distances can be kept per block of pixels;
+//      get() then returns a lower bound, which is all a jumping particle needs
+
+import java.util.Arrays;
+
+public class DistanceField {
+	public static final int MAX_DISTANCE = 32; // distances beyond this (in blocks) are stored as MAX_DISTANCE
+
+	private static final long MAX_CELLS = 1L << 26; // largest field blockShiftFor() picks, in bytes
+
+	private final int blockShift; // blocks are (1 << blockShift) pixels wide
+	private final int cols;       // field is cols x cols blocks
+	private final byte[] dist;    // capped distances in blocks, row by row
+
+	// constructors
+	// one distance per pixel
+	public DistanceField(int size) {
+		this(size, 0);
+	}
+
+	// one distance per block of (1 << blockShift) x (1 << blockShift) pixels
+	public DistanceField(int size, int blockShift) {
+		this.blockShift = blockShift;
+		this.cols = ((size - 1) >>> blockShift) + 1;
+		this.dist = new byte[this.cols*this.cols];
+		Arrays.fill(this.dist, (byte) MAX_DISTANCE); // nothing is occupied yet
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// blockShiftFor(): returns the smallest block shift that keeps the field
+	//                  for an nxn lattice within MAX_CELLS bytes
+	public static int blockShiftFor(int size) {
+		int shift = 0;
+		while ((long) (size >>> shift)*(size >>> shift) > MAX_CELLS) {
+			shift++;
+		}
+		return shift;
+	}
+
+	// ------------------------------------------------------------------
+	// get(): returns the capped distance from pixel (x,y) to the nearest occupied pixel
+	//        - exact for one distance per pixel, a lower bound for larger blocks
+	public int get(int x, int y) {
+		int blocks = this.dist[(y >>> this.blockShift)*this.cols + (x >>> this.blockShift)];
+		// every pixel of a block b blocks away is at least (b-1) blocks plus one pixel away
+		return (blocks == 0) ? 0 : ((blocks - 1) << this.blockShift) + 1;
+	}
+
+	// ------------------------------------------------------------------
+	// occupy(): lower the distances around a newly occupied pixel (x0,y0)
+	public void occupy(int x0, int y0) {
+		int bx0 = x0 >>> this.blockShift;
+		int by0 = y0 >>> this.blockShift;
+		int xMin = Math.max(bx0 - MAX_DISTANCE, 0);
+		int xMax = Math.min(bx0 + MAX_DISTANCE, this.cols - 1);
+		int yMin = Math.max(by0 - MAX_DISTANCE, 0);
+		int yMax = Math.min(by0 + MAX_DISTANCE, this.cols - 1);
+
+		for (int y = yMin; y <= yMax; y++) {
+			int dy = Math.abs(y - by0);
+			int row = y*this.cols;
+			for (int x = xMin; x <= xMax; x++) {
+				int d = Math.max(Math.abs(x - bx0), dy);
+				if (d < this.dist[row + x]) {
+					this.dist[row + x] = (byte) d;
+				}
+			}
+		}
+	}
+}
@@ -14,8 +14,12 @@ import java.awt.image.*;
 import java.io.*;
 import javax.imageio.*;
 import javax.swing.*;
-import java.util.Random;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Fractals {
 	private static final int frameWIDTH  = 400; // ImageFrame width
@@ -36,15 +40,34 @@ class ImageFrame extends JFrame {
 	private final int RED   = 0xFFFF0000; // seed color
 	private final int BLACK = 0xFF000000; // particle color
 
+	// fractalSim() saves its progress to this file every CHECKPOINT_INTERVAL nanoseconds
+	private static final String CHECKPOINT_FILE = "crystal.ckpt";
+	private static final long CHECKPOINT_INTERVAL = 60L*1000000000L;
+
+	// snapshots of a growing crystal are shown at most FRAME_RATE times a second, and never take
+	// more than MAX_DISPLAY_SHARE of the run; crystals larger than MAX_PREVIEW_SIZE are only shown at the end
+	private static final int FRAME_RATE = 10;
+	private static final double MAX_DISPLAY_SHARE = 0.03;
+	private static final int MAX_PREVIEW_SIZE = 4096;
+
 	// declare variables that will be determined by user input
 	private int imgSize;
 	private int numSeeds;
 	private int numParticles;
 	private int maxNumSteps;
+	private int randSeed; // seed for parallel runs, so a run can be repeated
 
 	private Random rand; // declare Random object
 
 	private BufferedImage image = null; // initialize null BufferedImage to change later
+	private OccupancyGrid grid = null; // seeds and stuck particles, queried instead of the image
+	private int[] seeds = null; // seed positions (seeds[2*i] = x, seeds[2*i+1] = y)
+
+	private CrystalWorker worker = null; // running simulation, if any
+	private final ArrayList<JMenuItem> crystalItems = new ArrayList<JMenuItem>(); // menu items that start a simulation
+	private JMenuItem cancelItem;
+	private ImageIcon preview;   // latest snapshot of the growing crystal
+	private JLabel previewLabel; // displays preview
 
 	//==============================================================
 	// constructors
@@ -72,12 +95,15 @@ class ImageFrame extends JFrame {
 					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps
 					promptUser();
 
-					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for bilinear gradient
-					fractalSim(image, imgSize, "toroid", numSeeds, numParticles, maxNumSteps); // generate crystals/fractals
-					displayBufferedImage(image); // display final image		
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for crystal
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							fractalSim(image, imgSize, "toroid", numSeeds, numParticles, maxNumSteps, this); // generate crystals/fractals
+						}
+					});
 				}
 			}	);
-		fileMenu.add(crystalToroidItem);	
+		addCrystalItem(fileMenu, crystalToroidItem);
 
 		// --- Crystal (bounded plane)
 		JMenuItem crystalBoundedItem = new JMenuItem("Crystal (bounded plane)");
@@ -86,13 +112,167 @@ class ImageFrame extends JFrame {
 				public void actionPerformed(ActionEvent event) {
 					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps
 					promptUser();
-					
-					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for bilinear gradient
-					fractalSim(image, imgSize, "bounded", numSeeds, numParticles, maxNumSteps); // generate crystals/fractals
-					displayBufferedImage(image); // display final image		
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB); // construct image for crystal
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							fractalSim(image, imgSize, "bounded", numSeeds, numParticles, maxNumSteps, this); // generate crystals/fractals
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, crystalBoundedItem);
+
+		// --- Crystal (toroid, parallel)
+		JMenuItem parallelToroidItem = new JMenuItem("Crystal (toroid, parallel)");
+		parallelToroidItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps, randSeed
+					promptUser();
+					randSeed = promptForPosNum("Enter the random seed.");
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							parallelFractalSim(image, imgSize, "toroid", numSeeds, numParticles, maxNumSteps, randSeed, this); // generate crystals/fractals
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, parallelToroidItem);
+
+		// --- Crystal (bounded plane, parallel)
+		JMenuItem parallelBoundedItem = new JMenuItem("Crystal (bounded plane, parallel)");
+		parallelBoundedItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps, randSeed
+					promptUser();
+					randSeed = promptForPosNum("Enter the random seed.");
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							parallelFractalSim(image, imgSize, "bounded", numSeeds, numParticles, maxNumSteps, randSeed, this); // generate crystals/fractals
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, parallelBoundedItem);
+
+		// --- Crystal (toroid, accelerated)
+		JMenuItem acceleratedToroidItem = new JMenuItem("Crystal (toroid, accelerated)");
+		acceleratedToroidItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps
+					promptUser();
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							acceleratedFractalSim(image, imgSize, "toroid", numSeeds, numParticles, maxNumSteps, this); // generate crystals/fractals
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, acceleratedToroidItem);
+
+		// --- Crystal (bounded plane, accelerated)
+		JMenuItem acceleratedBoundedItem = new JMenuItem("Crystal (bounded plane, accelerated)");
+		acceleratedBoundedItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numSeeds, numParticles, maxNumSteps
+					promptUser();
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							acceleratedFractalSim(image, imgSize, "bounded", numSeeds, numParticles, maxNumSteps, this); // generate crystals/fractals
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, acceleratedBoundedItem);
+
+		// --- Crystal (radial)
+		JMenuItem radialItem = new JMenuItem("Crystal (radial, single seed)");
+		radialItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numParticles
+					imgSize      = promptForPosNum("Enter your desired size n (for an nxn size image).");
+					numParticles = promptForPosNum("Enter the number of particles.");
+
+					image = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
+					startWorker(new CrystalWorker(image) {
+						protected void simulate() {
+							radialFractalSim(image, imgSize, numParticles, this); // generate crystal
+						}
+					});
+				}
+			}	);
+		addCrystalItem(fileMenu, radialItem);
+
+		// --- Crystal (radial, tiled lattice)
+		JMenuItem radialTiledItem = new JMenuItem("Crystal (radial, tiled lattice to PNG)");
+		radialTiledItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					// prompt user for input to assign imgSize, numParticles
+					imgSize      = promptForPosNum("Enter your desired lattice size n (for an nxn lattice).");
+					numParticles = promptForPosNum("Enter the number of particles.");
+
+					JFileChooser chooser = new JFileChooser();
+					chooser.setCurrentDirectory(new File("."));
+					if (chooser.showSaveDialog(ImageFrame.this) == JFileChooser.APPROVE_OPTION) {
+						final File file = chooser.getSelectedFile();
+						// the crystal goes straight to the file, so there is nothing to display
+						startWorker(new CrystalWorker(null) {
+							protected void simulate() throws IOException {
+								tiledRadialFractalSim(imgSize, numParticles, file, this); // generate crystal
+							}
+						});
+					}
 				}
 			}	);
-		fileMenu.add(crystalBoundedItem);		
+		addCrystalItem(fileMenu, radialTiledItem);
+
+		// --- Resume crystal
+		JMenuItem resumeItem = new JMenuItem("Resume crystal from checkpoint");
+		resumeItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					try {
+						final Checkpoint checkpoint = Checkpoint.load(new File(CHECKPOINT_FILE));
+						image = new BufferedImage(checkpoint.getGrid().getSize(), checkpoint.getGrid().getSize(), BufferedImage.TYPE_INT_ARGB);
+						startWorker(new CrystalWorker(image) {
+							protected void simulate() {
+								resumeFractalSim(image, checkpoint, this); // continue saved crystal/fractals
+							}
+						});
+					}
+					catch (IOException exception) {
+						JOptionPane.showMessageDialog(ImageFrame.this, exception);
+					}
+				}
+			}	);
+		addCrystalItem(fileMenu, resumeItem);
+
+		// --- Cancel
+		cancelItem = new JMenuItem("Cancel");
+		cancelItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					if (worker != null) {
+						worker.requestStop(); // the crystal so far is displayed once the worker stops
+					}
+				}
+			}	);
+		cancelItem.setEnabled(false); // nothing to cancel yet
+		fileMenu.add(cancelItem);
 
 		// --- Exit
 		JMenuItem exitItem = new JMenuItem("Exit");
@@ -110,6 +290,34 @@ class ImageFrame extends JFrame {
 		this.setJMenuBar(menuBar);
 	}
 
+	// ---------------------------------------------------------
+	// addCrystalItem(): add a menu item that starts a simulation;
+	//                   these are disabled while a simulation runs
+	private void addCrystalItem(JMenu menu, JMenuItem item) {
+		menu.add(item);
+		crystalItems.add(item);
+	}
+
+	// ---------------------------------------------------------
+	// startWorker(): run a simulation in the background, showing its
+	//                progress if it has an image to display
+	private void startWorker(CrystalWorker crystalWorker) {
+		worker = crystalWorker;
+		for (JMenuItem item : crystalItems) {
+			item.setEnabled(false);
+		}
+		cancelItem.setEnabled(true);
+
+		BufferedImage firstFrame = crystalWorker.firstFrame();
+		if (firstFrame != null) {
+			preview = new ImageIcon(firstFrame);
+			previewLabel = new JLabel(preview);
+			this.setContentPane(new JScrollPane(previewLabel));
+			this.validate();
+		}
+		crystalWorker.execute();
+	}
+
 	// ----------------------------------------------------------
 	// promptUser(): assign private variables based on user input
 	private void promptUser() {
@@ -151,7 +359,8 @@ class ImageFrame extends JFrame {
 	// - int numSeeds = number of stationary seeds on which particles stick and form fractals
 	// - int numParticles = number of particles moving around image that may stick to seeds and form fractals
 	// - maxNumSteps = maximum number of steps particles can take 
-	private void fractalSim(BufferedImage image, int imgSize, String topology, int numSeeds, int numParticles, int maxNumSteps) {
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void fractalSim(BufferedImage image, int imgSize, String topology, int numSeeds, int numParticles, int maxNumSteps, SimMonitor monitor) {
 		// fill background with white
 		for (int i = 0; i < imgSize; i++) {
 			for (int j = 0; j < imgSize; j++) {
@@ -159,101 +368,279 @@ class ImageFrame extends JFrame {
 			}
 		}
 
+		// the image is only written for output; sticking checks read the occupancy grid
+		grid = new OccupancyGrid(imgSize);
+
 		// randomly position seeds and make them red
+		seeds = new int[2*numSeeds];
 		for (int i = 0; i < numSeeds; i++) {
-			image.setRGB(rand.nextInt(imgSize),rand.nextInt(imgSize), RED);
+			seeds[2*i]   = rand.nextInt(imgSize);
+			seeds[2*i+1] = rand.nextInt(imgSize);
+			grid.occupy(seeds[2*i], seeds[2*i+1]);
+			image.setRGB(seeds[2*i], seeds[2*i+1], RED);
 		}
 
-		// create ArrayList to store Particle objects
-		ArrayList<Particle> particles = new ArrayList<Particle>(numParticles);
-		// create randomly positioned Particle objects
-		for (int i = 0; i < numParticles; i++) {
-			Particle p = new Particle(this.rand, imgSize);
-			particles.add(p);
-		}
+		// create randomly positioned particles
+		ParticleEngine particles = new ParticleEngine(grid, topology, this.rand, numParticles);
+		particles.spawn(numParticles);
+
+		generateFractals(image, topology, particles, 0, maxNumSteps, false, monitor);
+	}
+
+	// ------------------------------------------------------------------------------
+	// resumeFractalSim(): continues the fractalSim() run saved in CHECKPOINT_FILE
+	//
+	// params: 
+	// - BufferedImage image = image on which to draw fractals, of the checkpoint's size
+	// - Checkpoint checkpoint = the saved run
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void resumeFractalSim(BufferedImage image, Checkpoint checkpoint, SimMonitor monitor) {
+		this.imgSize = checkpoint.getGrid().getSize();
+		this.grid = checkpoint.getGrid();
+		this.seeds = checkpoint.getSeeds();
+		this.rand = checkpoint.getRandom(); // the particles keep drawing from the saved Random
+
+		paintCrystal(image, imgSize, seeds);
+		generateFractals(image, checkpoint.getTopology(), checkpoint.getParticles(),
+		                 checkpoint.getStep(), checkpoint.getMaxNumSteps(), true, monitor);
+	}
+
+	// ------------------------------------------------------------------------------
+	// generateFractals(): moves particles and sticks them to the crystal, saving a checkpoint
+	//                     to CHECKPOINT_FILE every CHECKPOINT_INTERVAL; once the run is over, the
+	//                     checkpoint is deleted if this run wrote it or was resumed from it, but
+	//                     kept if the run is cancelled, and a checkpoint left by another run is
+	//                     never touched
+	//
+	// params: 
+	// - BufferedImage image = image on which to draw fractals
+	// - String topology = defines movement constraints of particles (bounded plane or toroidal plane)
+	// - ParticleEngine particles = un-stuck particles
+	// - int firstStep = number of steps already taken
+	// - maxNumSteps = maximum number of steps particles can take 
+	// - boolean resumed = whether the run was resumed from CHECKPOINT_FILE
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void generateFractals(BufferedImage image, String topology, ParticleEngine particles, int firstStep, int maxNumSteps,
+	                              boolean resumed, SimMonitor monitor) {
+		File checkpointFile = new File(CHECKPOINT_FILE);
+		boolean ownsCheckpoint = resumed; // whether the checkpoint on disk belongs to this run
+		long lastCheckpoint = System.nanoTime();
 
-		// generate fractals
-		int[] particlePos; // position of current particle being checked
 		// continuing moving particles until all particles are stuck or
 		// each has taken the maximum number of steps (whichever comes first)
-		for (int i = 0; i < maxNumSteps; i++) {
-			// create new ArrayList before each step to store newly stuck partciles
-			ArrayList<Particle> stuck = new ArrayList<Particle>();
-			// iterate through remaining un-stuck particles
-			for (Particle particle : particles) {				
-				particlePos = particle.getPos();
-				// if particle is next to seed or already stuck particle,
-				// add to stuck ArrayList and make it black
-				if (isNextToSeed(particlePos) == true) {
-					stuck.add(particle);
-					image.setRGB(particlePos[0],particlePos[1], BLACK);
+		for (int i = firstStep; i < maxNumSteps; i++) {
+			if (monitor.proceed() == false) {
+				return; // cancelled
+			}
+
+			// save progress every so often, between steps
+			if (System.nanoTime() - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+				try {
+					new Checkpoint(topology, i, maxNumSteps, seeds, grid, particles, rand).save(checkpointFile);
+					ownsCheckpoint = true;
+				}
+				catch (final IOException exception) {
+					// keep going without the checkpoint
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							JOptionPane.showMessageDialog(ImageFrame.this, exception);
+						}
+					});
 				}
+				lastCheckpoint = System.nanoTime();
+			}
+
+			// stick particles next to a seed or already stuck particle
+			int live = particles.size();
+			particles.stick();
+			// newly stuck particles are left just past the live ones; make them black
+			for (int j = particles.size(); j < live; j++) {
+				image.setRGB(particles.getX(j), particles.getY(j), BLACK);
 			}
-			// remove newly stuck particles from particle ArrayList
-			particles.removeAll(stuck);
 			// if all particles are stuck, no more steps need to be taken
 			if (particles.size() == 0) {
 				break;
 			}
 			// move remaining un-stuck particles based on topology
-			for (Particle particle : particles) {
-				particle.step(topology);
-			}
+			particles.step();
 		}
-	}
-
-	// ---------------------------------------------------------------------------------
-	// isNextToSeed(): returns boolean whether a pixel is adjacent to a non-white pixel, 
-	//                 i.e., a seed (red) or stuck particle (black)
-	// params:
-	// - int[] pos = position of pixel (pos[0] = x, pos[1] = y)
-	private boolean isNextToSeed(int[] pos) {
-		boolean adjacent = false;
 
-		// check color of adjacent pixels in Moore neighborhood
-		if ((inBounds(pos[0], pos[1]+1) == true) && (image.getRGB(pos[0], pos[1]+1) != WHITE)) { // check pixel below
-			adjacent = true;
+		if (ownsCheckpoint) {
+			checkpointFile.delete(); // nothing left to resume
 		}
-		else if ((inBounds(pos[0]-1, pos[1]+1) == true) && (image.getRGB(pos[0]-1, pos[1]+1) != WHITE)) { // check pixel below-left
-			adjacent = true;
+	}
+
+	// ------------------------------------------------------------------------------
+	// parallelFractalSim(): simulates fractal generation using diffusion limited aggregation,
+	//                       with the particles stepped on every available core
+	//                       - the same seed gives the same crystal at any thread count
+	//                       - all particles move at once, so one that sticks during a step
+	//                         only catches others on the next step
+	//
+	// params: 
+	// - BufferedImage image = image on which to draw fractals
+	// - int imgSize = size of BufferedImage
+	// - String topology = defines movement constraints of particles (bounded plane or toroidal plane)
+	// - int numSeeds = number of stationary seeds on which particles stick and form fractals
+	// - int numParticles = number of particles moving around image that may stick to seeds and form fractals
+	// - maxNumSteps = maximum number of steps particles can take 
+	// - long seed = seed for the seed positions, particle positions and particle steps
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void parallelFractalSim(BufferedImage image, int imgSize, String topology, int numSeeds, int numParticles, int maxNumSteps, long seed, SimMonitor monitor) {
+		SplittableRandom root = new SplittableRandom(seed);
+		grid = new OccupancyGrid(imgSize);
+
+		// randomly position seeds
+		seeds = new int[2*numSeeds];
+		for (int i = 0; i < numSeeds; i++) {
+			seeds[2*i]   = root.nextInt(imgSize);
+			seeds[2*i+1] = root.nextInt(imgSize);
+			grid.occupy(seeds[2*i], seeds[2*i+1]);
 		}
-		else if ((inBounds(pos[0]-1, pos[1]) == true) && (image.getRGB(pos[0]-1, pos[1]) != WHITE)) { // check pixel left
-			adjacent = true;
-		}		
-		else if ((inBounds(pos[0]-1, pos[1]-1) == true) && (image.getRGB(pos[0]-1, pos[1]-1) != WHITE)) { // check pixel above-left
-			adjacent = true;
-		}		
-		else if ((inBounds(pos[0], pos[1]-1) == true) && (image.getRGB(pos[0], pos[1]-1) != WHITE)) { // check pixel above
-			adjacent = true;
-		}		
-		else if ((inBounds(pos[0]+1, pos[1]-1) == true) && (image.getRGB(pos[0]+1, pos[1]-1) != WHITE)) { // check pixel above-right
-			adjacent = true;
-		}		
-		else if ((inBounds(pos[0]+1, pos[1]) == true) && (image.getRGB(pos[0]+1, pos[1]) != WHITE)) { // check pixel right
-			adjacent = true;
+
+		// generate fractals
+		ParallelDLA sim = new ParallelDLA(grid, topology, root, numParticles, Runtime.getRuntime().availableProcessors());
+		sim.run(maxNumSteps, monitor);
+
+		paintCrystal(image, imgSize, seeds);
+	}
+
+	// ------------------------------------------------------------------------------
+	// acceleratedFractalSim(): simulates fractal generation using diffusion limited aggregation,
+	//                          letting particles far from the crystal jump instead of stepping
+	//                          (see AcceleratedDLA)
+	//
+	// params: 
+	// - BufferedImage image = image on which to draw fractals
+	// - int imgSize = size of BufferedImage
+	// - String topology = defines movement constraints of particles (bounded plane or toroidal plane)
+	// - int numSeeds = number of stationary seeds on which particles stick and form fractals
+	// - int numParticles = number of particles moving around image that may stick to seeds and form fractals
+	// - maxNumSteps = maximum number of steps particles can take 
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void acceleratedFractalSim(BufferedImage image, int imgSize, String topology, int numSeeds, int numParticles, int maxNumSteps, SimMonitor monitor) {
+		grid = new OccupancyGrid(imgSize);
+		DistanceField field = new DistanceField(imgSize);
+
+		// randomly position seeds
+		seeds = new int[2*numSeeds];
+		for (int i = 0; i < numSeeds; i++) {
+			seeds[2*i]   = rand.nextInt(imgSize);
+			seeds[2*i+1] = rand.nextInt(imgSize);
+			grid.occupy(seeds[2*i], seeds[2*i+1]);
+			field.occupy(seeds[2*i], seeds[2*i+1]);
 		}
-		else if ((inBounds(pos[0]+1, pos[1]+1) == true) && (image.getRGB(pos[0]+1, pos[1]+1) != WHITE)) { // check pixel below-right
-			adjacent = true;
-		}		
 
-		return adjacent;
+		// generate fractals
+		AcceleratedDLA sim = new AcceleratedDLA(grid, field, topology, this.rand, numParticles);
+		sim.run(maxNumSteps, monitor);
+
+		paintCrystal(image, imgSize, seeds);
+	}
+
+	// ------------------------------------------------------------------------------
+	// radialFractalSim(): grows one crystal from a seed in the middle of the image,
+	//                     releasing particles one at a time just outside the crystal (see RadialDLA)
+	//
+	// params: 
+	// - BufferedImage image = image on which to draw the crystal
+	// - int imgSize = size of BufferedImage
+	// - int numParticles = number of particles to stick, unless the crystal reaches the edge first
+	// - SimMonitor monitor = shows progress, and may stop the simulation early
+	private void radialFractalSim(BufferedImage image, int imgSize, int numParticles, SimMonitor monitor) {
+		grid = new OccupancyGrid(imgSize);
+
+		// generate crystal
+		RadialDLA sim = new RadialDLA(grid, new DistanceField(imgSize), this.rand);
+		seeds = new int[] {sim.getCenter(), sim.getCenter()};
+		sim.run(numParticles, monitor);
+
+		paintCrystal(image, imgSize, seeds);
 	}
 
-	// ----------------------------------------------------------------------------------
-	// inBounds(): returns boolean whether a coordinate is within the bounds of the image
+	// ------------------------------------------------------------------------------
+	// tiledRadialFractalSim(): grows one crystal on an off-heap TiledLattice, for lattices
+	//                          too large for a BufferedImage, and streams it to a PNG file
+	//
+	// params: 
+	// - int latticeSize = size n of the nxn lattice
+	// - int numParticles = number of particles to stick, unless the crystal reaches the edge first
+	// - File file = PNG file to write
+	// - SimMonitor monitor = may stop the simulation early
+	private void tiledRadialFractalSim(int latticeSize, int numParticles, File file, SimMonitor monitor) throws IOException {
+		TiledLattice lattice = new TiledLattice(latticeSize);
+		DistanceField field = new DistanceField(latticeSize, DistanceField.blockShiftFor(latticeSize));
+
+		// generate crystal
+		RadialDLA sim = new RadialDLA(lattice, field, this.rand);
+		sim.run(numParticles, monitor);
+
+		writeCrystalPng(lattice, new int[] {sim.getCenter(), sim.getCenter()}, file);
+	}
+
+	// ------------------------------------------------------------------------------
+	// writeCrystalPng(): writes a lattice's stuck particles black on white, and seeds red,
+	//                    to a 2-bit palette PNG one row at a time
 	//
 	// params:
-	// - int x: x coordinate
-	// - int y: y coordinate
-	private boolean inBounds(int x, int y) {
-		boolean result = false;
-
-		if ((x >= 0) && (x < this.imgSize) &&
-			(y >= 0) && (y < this.imgSize)) {
-			result = true;
+	// - Lattice lattice = seeds and stuck particles
+	// - int[] seeds = seed positions (seeds[2*i] = x, seeds[2*i+1] = y)
+	// - File file = PNG file to write
+	private void writeCrystalPng(Lattice lattice, int[] seeds, File file) throws IOException {
+		int size = lattice.getSize();
+		long[] bits = new long[(size + 63)/64];
+		byte[] row = new byte[16*bits.length]; // 4 pixels per byte
+
+		// spread the 8 pixels of a byte over 2 bytes of 2-bit palette indices, first pixel highest
+		char[] spread = new char[256];
+		for (int b = 0; b < 256; b++) {
+			for (int i = 0; i < 8; i++) {
+				spread[b] |= ((b >>> i) & 1) << (14 - 2*i);
+			}
 		}
 
-		return result;
+		try (PngRowWriter png = new PngRowWriter(new FileOutputStream(file), size, size, 2, PngRowWriter.PALETTE,
+		                                         new int[] {WHITE, BLACK, RED})) {
+			for (int y = 0; y < size; y++) {
+				lattice.getRow(y, bits);
+				for (int w = 0; w < bits.length; w++) {
+					for (int b = 0; b < 8; b++) {
+						char pixels = spread[(int) (bits[w] >>> (8*b)) & 0xFF];
+						row[16*w + 2*b]     = (byte) (pixels >>> 8);
+						row[16*w + 2*b + 1] = (byte) pixels;
+					}
+				}
+				for (int i = 0; i < seeds.length; i += 2) {
+					if (seeds[i+1] == y) {
+						int shift = 6 - 2*(seeds[i] & 3);
+						row[seeds[i] >>> 2] = (byte) ((row[seeds[i] >>> 2] & ~(3 << shift)) | (2 << shift));
+					}
+				}
+				png.writeRow(row);
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------------------
+	// paintCrystal(): paints the grid's stuck particles black on white, and seeds red
+	//
+	// params:
+	// - BufferedImage image = image on which to draw fractals
+	// - int imgSize = size of BufferedImage
+	// - int[] seeds = seed positions (seeds[2*i] = x, seeds[2*i+1] = y)
+	private void paintCrystal(BufferedImage image, int imgSize, int[] seeds) {
+		long[] bits = new long[(imgSize + 63)/64];
+		int[] row = new int[imgSize];
+		for (int y = 0; y < imgSize; y++) {
+			grid.getRow(y, bits);
+			for (int x = 0; x < imgSize; x++) {
+				row[x] = (((bits[x >>> 6] >>> x) & 1L) != 0) ? BLACK : WHITE;
+			}
+			image.setRGB(0, y, imgSize, 1, row, 0, imgSize);
+		}
+		for (int i = 0; i < seeds.length; i += 2) {
+			image.setRGB(seeds[i], seeds[i+1], RED);
+		}
 	}
 
 	// ---------------------------------------------------------
@@ -267,4 +654,116 @@ class ImageFrame extends JFrame {
 
 		this.validate();
 	}
+
+	// ---------------------------------------------------------------------------------------
+	// CrystalWorker: runs a simulation off the EDT, so the window stays responsive
+	//                - simulate() passes the worker to the simulation as its SimMonitor
+	//                - between steps the worker paints a snapshot of the crystal into one of two
+	//                  buffers and hands it to the EDT, while the other buffer may still be displayed
+	//                - a new snapshot is only painted once the EDT has taken the last one, at most
+	//                  FRAME_RATE times a second and never more than MAX_DISPLAY_SHARE of the run
+	//                - requestStop() makes the simulation return early with the crystal so far
+	private abstract class CrystalWorker extends SwingWorker<Void, BufferedImage> implements SimMonitor {
+		private final BufferedImage target;   // image displayed when the simulation is over, or null
+		private final BufferedImage[] frames; // snapshot buffers, or null when there is no preview
+		private final AtomicBoolean framePending = new AtomicBoolean(false); // EDT has not taken the last snapshot yet
+		private volatile boolean stopRequested = false;
+		private int nextBuffer = 0;
+		private long startTime;
+		private long nextFrameTime;
+		private long paintTime; // time spent painting snapshots so far
+
+		// params:
+		// - BufferedImage target = image the simulation draws on, or null if it draws nothing to display
+		CrystalWorker(BufferedImage target) {
+			this.target = target;
+			if ((target != null) && (target.getWidth() <= MAX_PREVIEW_SIZE)) {
+				this.frames = new BufferedImage[2];
+				for (int i = 0; i < 2; i++) {
+					this.frames[i] = new BufferedImage(target.getWidth(), target.getHeight(), BufferedImage.TYPE_INT_ARGB);
+				}
+			}
+			else {
+				this.frames = null;
+			}
+		}
+
+		// runs the simulation on the worker thread
+		protected abstract void simulate() throws Exception;
+
+		// returns the blank snapshot to display until the first one is painted, or null
+		BufferedImage firstFrame() {
+			if (this.frames == null) {
+				return null;
+			}
+			Graphics2D g2D = this.frames[1].createGraphics();
+			g2D.setColor(new Color(WHITE));
+			g2D.fillRect(0, 0, this.frames[1].getWidth(), this.frames[1].getHeight());
+			g2D.dispose();
+			return this.frames[1];
+		}
+
+		void requestStop() {
+			this.stopRequested = true;
+		}
+
+		protected Void doInBackground() throws Exception {
+			this.startTime = System.nanoTime();
+			this.nextFrameTime = this.startTime + 1000000000L/FRAME_RATE;
+			simulate();
+			return null;
+		}
+
+		// called by the simulation between steps, on the worker thread
+		public boolean proceed() {
+			if ((this.frames != null) && (framePending.get() == false)) {
+				long now = System.nanoTime();
+				if (now >= this.nextFrameTime) {
+					BufferedImage frame = this.frames[this.nextBuffer];
+					this.nextBuffer ^= 1;
+					paintCrystal(frame, frame.getWidth(), seeds);
+
+					long end = System.nanoTime();
+					this.paintTime += end - now;
+					// wait a frame, or longer if painting has used more than its share of the run
+					this.nextFrameTime = Math.max(end + 1000000000L/FRAME_RATE,
+					                              this.startTime + (long) (this.paintTime/MAX_DISPLAY_SHARE));
+					framePending.set(true);
+					publish(frame);
+				}
+			}
+			return (this.stopRequested == false);
+		}
+
+		// called on the EDT with the snapshots published since the last call
+		protected void process(List<BufferedImage> published) {
+			if (worker == this) {
+				preview.setImage(published.get(published.size() - 1));
+				previewLabel.repaint();
+			}
+			framePending.set(false);
+		}
+
+		// called on the EDT once simulate() returns
+		protected void done() {
+			worker = null;
+			for (JMenuItem item : crystalItems) {
+				item.setEnabled(true);
+			}
+			cancelItem.setEnabled(false);
+
+			try {
+				get();
+			}
+			catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException exception) {
+				JOptionPane.showMessageDialog(ImageFrame.this, exception.getCause());
+			}
+			if (this.target != null) {
+				displayBufferedImage(this.target); // display final image
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+// FractalsBenchmark.java
+// -- repeatable timings of the DLA hot path (ParticleEngine.stick() and step() on an OccupancyGrid)
+//    - every case is run over both topologies and a matrix of image sizes, seed counts and particle counts
+//    - each measurement starts from the same seeded setup, so runs of the same build are comparable
+//    - warmup iterations let the JIT compile the hot path before anything is measured (see Benchmark)
+//    - reports particle steps per second and bytes allocated per step by the measuring thread
+//    - with a budget (minimum steps per second), exits with status 1 if any case falls below it
+//
+// usage: java FractalsBenchmark [budget]
+
+import java.util.Random;
+
+public class FractalsBenchmark {
+	private static final String[] TOPOLOGIES = { "toroid", "bounded" };
+	private static final int[] SIZES = { 256, 1024 };
+	private static final int[] SEED_COUNTS = { 1, 64 };
+	private static final int[] PARTICLE_COUNTS = { 10000, 100000 };
+
+	private static final int STEPS = 200;                // steps per measured run
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASURED_ITERATIONS = 10;
+	private static final long RANDOM_SEED = 42L;
+
+	public static void main(String[] args) {
+		double budget = (args.length > 0) ? Double.parseDouble(args[0]) : 0.0;
+		boolean withinBudget = true;
+		long checksum = 0;
+
+		System.out.printf("%-8s %6s %6s %9s %16s %12s %12s%n",
+		                  "topology", "size", "seeds", "particles", "steps/s", "+/-", "bytes/step");
+		for (String topology : TOPOLOGIES) {
+			for (int size : SIZES) {
+				for (int numSeeds : SEED_COUNTS) {
+					for (int numParticles : PARTICLE_COUNTS) {
+						Benchmark.Result result = Benchmark.measure(new Simulation(topology, size, numSeeds, numParticles),
+						                                            WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+						double[] rates = result.rates();
+						double mean = Benchmark.mean(rates);
+						System.out.printf("%-8s %6d %6d %9d %16.0f %12.0f %12s%n",
+						                  topology, size, numSeeds, numParticles, mean, Benchmark.deviation(rates, mean),
+						                  (result.allocated() < 0) ? "n/a"
+						                  : String.format("%.4f", (double) result.allocated()/result.totalValue()));
+						checksum += result.checksum();
+						if (mean < budget) {
+							withinBudget = false;
+						}
+					}
+				}
+			}
+		}
+		System.out.println("checksum " + checksum);
+
+		if (withinBudget == false) {
+			System.out.printf("below the budget of %.0f steps/s%n", budget);
+			System.exit(1);
+		}
+	}
+
+	//##################################################################
+
+	// a fresh simulation (set up untimed), timed for STEPS rounds of stick() and step();
+	// each run returns the number of particle steps taken
+	private static class Simulation implements Benchmark.Trial {
+		private final String topology;  // "toroid" or "bounded"
+		private final int size;         // grid is size x size
+		private final int numSeeds;     // number of randomly positioned seeds
+		private final int numParticles; // number of randomly positioned particles
+		private ParticleEngine particles; // set up by setUp()
+
+		Simulation(String topology, int size, int numSeeds, int numParticles) {
+			this.topology = topology;
+			this.size = size;
+			this.numSeeds = numSeeds;
+			this.numParticles = numParticles;
+		}
+
+		public void setUp() {
+			Random rand = new Random(RANDOM_SEED);
+			OccupancyGrid grid = new OccupancyGrid(this.size);
+			for (int i = 0; i < this.numSeeds; i++) {
+				grid.occupy(rand.nextInt(this.size), rand.nextInt(this.size));
+			}
+			this.particles = new ParticleEngine(grid, this.topology, rand, this.numParticles);
+			this.particles.spawn(this.numParticles);
+		}
+
+		public long run() {
+			long steps = 0;
+			for (int i = 0; (i < STEPS) && (this.particles.size() > 0); i++) {
+				this.particles.stick();
+				steps += this.particles.size();
+				this.particles.step();
+			}
+			return steps;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+// Lattice.java
+// -- square lattice of occupied / unoccupied cells on which a DLA crystal grows
+//    - OccupancyGrid keeps the whole lattice on the heap
+//    - TiledLattice keeps it off-heap in tiles allocated as the crystal reaches them
+
+public interface Lattice {
+	// returns n for an nxn lattice
+	int getSize();
+
+	// returns whether cell (x,y) is a seed or stuck particle
+	boolean isOccupied(int x, int y);
+
+	// marks cell (x,y) as a seed or stuck particle
+	void occupy(int x, int y);
+
+	// returns whether any cell in the Moore neighborhood of (x,y) is occupied;
+	// cells outside the lattice count as unoccupied
+	boolean hasOccupiedNeighbor(int x, int y);
+
+	// copies row y into dst, cell x going to bit (x & 63) of dst[x >>> 6];
+	// dst holds at least (getSize() + 63)/64 longs
+	void getRow(int y, long[] dst);
+}
@@ -0,0 +1,111 @@
+// OccupancyGrid.java
+// -- bit-packed grid mirroring the seeds and stuck particles of a DLA simulation
+//    - one bit per pixel, rows padded with a blank border so neighbor checks need no bounds tests
+//    - a Moore neighborhood check is three word reads instead of eight getRGB() calls
+
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.lang.invoke.VarHandle;
+
+public class OccupancyGrid implements Lattice {
+	// atomic access to single words, for threads occupying pixels that share a word
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final int size;     // grid is size x size
+	private final int rowWords; // number of longs in each padded row
+	private final long[] words; // padded rows of bits, pixel (x,y) is stored at bit (x+1) of row (y+1)
+
+	// constructors
+	public OccupancyGrid(int size) {
+		this.size = size;
+		// one blank column on each side, plus a spare word so a 3-bit window never runs off the row
+		this.rowWords = ((size + 2 + 63) >>> 6) + 1;
+		// one blank row above and below the grid
+		this.words = new long[this.rowWords * (size + 2)];
+	}
+
+	// methods
+	public int getSize() {
+		return this.size;
+	}
+
+	// ------------------------------------------------------------------
+	// byteSize(): returns the number of bytes writeTo() writes
+	public long byteSize() {
+		return 8L*this.words.length;
+	}
+
+	// ------------------------------------------------------------------
+	// writeTo(): write the grid's bits at buf's position and advance it
+	public void writeTo(ByteBuffer buf) {
+		buf.asLongBuffer().put(this.words);
+		buf.position(buf.position() + 8*this.words.length);
+	}
+
+	// ------------------------------------------------------------------
+	// readFrom(): read bits written by writeTo() on a grid of the same size and advance buf
+	public void readFrom(ByteBuffer buf) {
+		buf.asLongBuffer().get(this.words);
+		buf.position(buf.position() + 8*this.words.length);
+	}
+
+	// ------------------------------------------------------------------
+	// isOccupied(): returns whether pixel (x,y) is a seed or stuck particle
+	public boolean isOccupied(int x, int y) {
+		int bit = x + 1;
+		return ((this.words[(y + 1)*this.rowWords + (bit >>> 6)] >>> bit) & 1L) != 0;
+	}
+
+	// ------------------------------------------------------------------
+	// occupy(): mark pixel (x,y) as a seed or stuck particle
+	public void occupy(int x, int y) {
+		int bit = x + 1;
+		this.words[(y + 1)*this.rowWords + (bit >>> 6)] |= 1L << bit;
+	}
+
+	// ------------------------------------------------------------------
+	// occupyConcurrently(): same as occupy(), but safe while other threads occupy
+	//                       pixels in the same word
+	public void occupyConcurrently(int x, int y) {
+		int bit = x + 1;
+		WORDS.getAndBitwiseOr(this.words, (y + 1)*this.rowWords + (bit >>> 6), 1L << bit);
+	}
+
+	// ---------------------------------------------------------------------------------
+	// hasOccupiedNeighbor(): returns whether any pixel in the Moore neighborhood of (x,y)
+	//                        is occupied; pixels outside the grid count as unoccupied
+	// params:
+	// - int x: x coordinate, 0 <= x < size
+	// - int y: y coordinate, 0 <= y < size
+	public boolean hasOccupiedNeighbor(int x, int y) {
+		// padded column x is the pixel left of (x,y), padded row y is the row above it
+		int word = y*this.rowWords + (x >>> 6);
+		int offset = x & 63;
+
+		long above = window(word, offset);
+		long level = window(word + this.rowWords, offset) & 0b101; // skip the pixel itself
+		long below = window(word + 2*this.rowWords, offset);
+
+		return (above | level | below) != 0;
+	}
+
+	// ------------------------------------------------------------------
+	// getRow(): copy row y into dst, pixel x going to bit (x & 63) of dst[x >>> 6]
+	public void getRow(int y, long[] dst) {
+		int row = (y + 1)*this.rowWords;
+		int n = (this.size + 63) >>> 6;
+		for (int w = 0; w < n; w++) {
+			// undo the blank column on the left
+			dst[w] = (this.words[row + w] >>> 1) | (this.words[row + w + 1] << 63);
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// window(): returns the 3 bits starting at bit offset of words[word],
+	//           reading into the next word when the window straddles two
+	private long window(int word, int offset) {
+		// the double shift keeps the second term zero when offset == 0
+		long bits = (this.words[word] >>> offset) | ((this.words[word + 1] << 1) << (63 - offset));
+		return bits & 0b111;
+	}
+}
@@ -0,0 +1,115 @@
+// ParallelDLA.java
+// -- diffusion limited aggregation with the particles split across worker threads
+//    - every particle carries its own random stream split from one seeded root, so the
+//      crystal for a fixed seed is the same at any thread count
+//    - each step runs in two phases separated by a barrier:
+//      1. mark: every chunk finds its particles next to the crystal (grid is only read)
+//      2. move: every chunk occupies the grid at its marked particles, removes them and
+//         steps the rest
+//    - particles that reach the crystal in the same step all stick, whichever thread owns them
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class ParallelDLA {
+	private static final int CHUNKS_PER_THREAD = 4; // spare chunks even out threads whose particles stick early
+
+	private final ParticleEngine[] chunks; // particles, split into contiguous runs of the spawn order
+	private final int numThreads;
+
+	// constructors
+	// params:
+	// - OccupancyGrid grid = seeds and stuck particles, shared by all threads
+	// - String topology = "toroid", "bounded", or another bounded topology from Topology.forName()
+	// - SplittableRandom root = seeded source of the particle positions and streams
+	// - int numParticles = number of particles to spawn
+	// - int numThreads = number of worker threads
+	public ParallelDLA(OccupancyGrid grid, String topology, SplittableRandom root, int numParticles, int numThreads) {
+		this.numThreads = numThreads;
+		this.chunks = new ParticleEngine[numThreads*CHUNKS_PER_THREAD];
+		// spawn in one fixed order, so particle k always gets the same position and stream
+		for (int c = 0; c < this.chunks.length; c++) {
+			int n = (int) ((long) numParticles*(c + 1)/this.chunks.length - (long) numParticles*c/this.chunks.length);
+			this.chunks[c] = new ParticleEngine(grid, topology, n);
+			this.chunks[c].spawn(root, n);
+		}
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// size(): returns the number of particles that are not stuck yet
+	public int size() {
+		int n = 0;
+		for (ParticleEngine chunk : this.chunks) {
+			n += chunk.size();
+		}
+		return n;
+	}
+
+	// -------------------------------------------------------------------------------
+	// run(): moves particles until all of them are stuck, maxNumSteps steps are taken or
+	//        the monitor stops the run; returns the number of steps taken, stopping early
+	//        if the thread is interrupted
+	public int run(int maxNumSteps, SimMonitor monitor) {
+		List<Callable<Void>> markTasks = new ArrayList<Callable<Void>>(this.chunks.length);
+		List<Callable<Void>> moveTasks = new ArrayList<Callable<Void>>(this.chunks.length);
+		for (final ParticleEngine chunk : this.chunks) {
+			markTasks.add(new Callable<Void>() {
+				public Void call() {
+					chunk.mark();
+					return null;
+				}
+			});
+			moveTasks.add(new Callable<Void>() {
+				public Void call() {
+					chunk.commit();
+					chunk.step();
+					return null;
+				}
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.numThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dla-worker");
+				thread.setDaemon(true); // never keep the app alive
+				return thread;
+			}
+		});
+		int steps = 0;
+		try {
+			while ((steps < maxNumSteps) && (size() > 0) && monitor.proceed()) {
+				invokeAll(pool, markTasks);
+				invokeAll(pool, moveTasks);
+				steps++;
+			}
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt(); // let the caller see the interrupt
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return steps;
+	}
+
+	// ------------------------------------------------------------------
+	// invokeAll(): runs the tasks on the pool and waits for all of them
+	private void invokeAll(ExecutorService pool, List<Callable<Void>> tasks) throws InterruptedException {
+		for (Future<Void> future : pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException exception) {
+				throw new IllegalStateException("DLA worker failed", exception.getCause());
+			}
+		}
+	}
+}
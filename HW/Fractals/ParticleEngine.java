@@ -0,0 +1,202 @@
+// ParticleEngine.java
+// -- moves the free particles of a DLA simulation and sticks them to the crystal
+//    - positions are kept in primitive x/y arrays instead of one Particle object per walker
+//    - stuck particles are removed by swapping in the last live particle, so no step allocates
+//    - particles either share one Random, or each carry their own random stream so that
+//      engines stepped on different threads give the same result for a fixed seed
+//    - each step draws a move code per particle, then hands them all to the Topology's bulk move loop
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+public class ParticleEngine {
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // SplitMix64 increment
+
+	private final OccupancyGrid grid; // seeds and stuck particles
+	private final int range;          // particles move within [0,range) x [0,range)
+	private final Topology topology;  // how particles move across the edges
+	private final Random rand;        // shared Random, or null when each particle has its own stream
+
+	private final int[] xs;         // x positions, live particles are at [0,count)
+	private final int[] ys;         // y positions, live particles are at [0,count)
+	private final long[] states;    // per-particle SplitMix64 states, or null
+	private final boolean[] marked; // particles found next to the crystal by mark(), or null
+	private final byte[] moves;     // Moore move code of each particle for the current step
+	private int count;              // number of live particles
+
+	// constructors
+	// particles draw their steps from one shared Random
+	public ParticleEngine(OccupancyGrid grid, String topology, Random r, int capacity) {
+		this(grid, topology, r, capacity, false);
+	}
+
+	// each particle draws its steps from its own stream, see spawn(SplittableRandom, int)
+	public ParticleEngine(OccupancyGrid grid, String topology, int capacity) {
+		this(grid, topology, null, capacity, true);
+	}
+
+	private ParticleEngine(OccupancyGrid grid, String topology, Random r, int capacity, boolean ownStreams) {
+		this.grid = grid;
+		this.range = grid.getSize();
+		this.topology = Topology.forName(topology, this.range, this.range);
+		this.rand = r;
+		this.xs = new int[capacity];
+		this.ys = new int[capacity];
+		this.states = ownStreams ? new long[capacity] : null;
+		this.marked = ownStreams ? new boolean[capacity] : null;
+		this.moves = new byte[capacity];
+	}
+
+	// methods
+	public int size() {
+		return this.count;
+	}
+
+	public int getX(int i) {
+		return this.xs[i];
+	}
+
+	public int getY(int i) {
+		return this.ys[i];
+	}
+
+	// ------------------------------------------------------------------
+	// byteSize(): returns the number of bytes writeTo() writes
+	public long byteSize() {
+		return 4L + 8L*this.count;
+	}
+
+	// ------------------------------------------------------------------
+	// writeTo(): write the live particle positions at buf's position and advance it
+	//            - particles with their own streams are not supported
+	public void writeTo(ByteBuffer buf) {
+		buf.putInt(this.count);
+		buf.asIntBuffer().put(this.xs, 0, this.count).put(this.ys, 0, this.count);
+		buf.position(buf.position() + 8*this.count);
+	}
+
+	// ------------------------------------------------------------------
+	// readFrom(): replace the live particles with positions written by writeTo() and advance buf
+	public void readFrom(ByteBuffer buf) {
+		this.count = buf.getInt();
+		buf.asIntBuffer().get(this.xs, 0, this.count).get(this.ys, 0, this.count);
+		buf.position(buf.position() + 8*this.count);
+	}
+
+	// ------------------------------------------------------------------
+	// spawn(): add n particles at random positions
+	public void spawn(int n) {
+		for (int i = 0; i < n; i++) {
+			this.xs[this.count] = this.rand.nextInt(this.range);
+			this.ys[this.count] = this.rand.nextInt(this.range);
+			this.count++;
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// spawn(): add n particles at random positions, each seeded with its own stream from root
+	public void spawn(SplittableRandom root, int n) {
+		for (int i = 0; i < n; i++) {
+			this.xs[this.count] = root.nextInt(this.range);
+			this.ys[this.count] = root.nextInt(this.range);
+			this.states[this.count] = root.nextLong();
+			this.count++;
+		}
+	}
+
+	// ------------------------------------------------------------------------------
+	// stick(): occupy the grid at every live particle next to a seed or stuck particle
+	//          and remove it; particles checked later in the same call see the earlier ones
+	//          - the removed particles are left at [size(), previous size()) until the next call
+	public void stick() {
+		int i = 0;
+		while (i < this.count) {
+			int x = this.xs[i];
+			int y = this.ys[i];
+			if (this.grid.hasOccupiedNeighbor(x, y)) {
+				this.grid.occupy(x, y);
+				remove(i); // the particle swapped into i is checked next
+			}
+			else {
+				i++;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------
+	// mark(): find the live particles next to a seed or stuck particle without changing the grid,
+	//         so every engine sharing the grid can mark at once; returns the number marked
+	//         - only for engines whose particles have their own streams
+	public int mark() {
+		int n = 0;
+		for (int i = 0; i < this.count; i++) {
+			boolean next = this.grid.hasOccupiedNeighbor(this.xs[i], this.ys[i]);
+			this.marked[i] = next;
+			if (next) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	// ------------------------------------------------------------------------------
+	// commit(): occupy the grid at every particle found by mark() and remove it
+	//           - safe while other engines commit to the same grid
+	//           - the removed particles are left at [size(), previous size()) until the next call
+	public void commit() {
+		int i = 0;
+		while (i < this.count) {
+			if (this.marked[i]) {
+				this.grid.occupyConcurrently(this.xs[i], this.ys[i]);
+				remove(i); // the particle swapped into i is checked next
+			}
+			else {
+				i++;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// remove(): swap live particle i with the last live particle and drop it from the live range
+	private void remove(int i) {
+		int last = --this.count;
+		int x = this.xs[i];
+		int y = this.ys[i];
+		this.xs[i] = this.xs[last];
+		this.ys[i] = this.ys[last];
+		this.xs[last] = x;
+		this.ys[last] = y;
+		if (this.states != null) {
+			long state = this.states[i];
+			this.states[i] = this.states[last];
+			this.states[last] = state;
+			boolean mark = this.marked[i];
+			this.marked[i] = this.marked[last];
+			this.marked[last] = mark;
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// step(): randomly step every live particle to an adjacent pixel in its Moore neighborhood
+	public void step() {
+		for (int i = 0; i < this.count; i++) {
+			this.moves[i] = (byte) nextMove(i);
+		}
+		this.topology.step(this.xs, this.ys, this.moves, 0, this.count, Neighborhood.MOORE);
+	}
+
+	// ------------------------------------------------------------------
+	// nextMove(): returns a random move in [0,8) for particle i
+	private int nextMove(int i) {
+		if (this.states == null) {
+			return this.rand.nextInt(8);
+		}
+		// SplitMix64, the generator behind SplittableRandom; the top 3 bits are uniform in [0,8)
+		long z = (this.states[i] += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) (z >>> 61);
+	}
+}
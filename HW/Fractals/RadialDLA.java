@@ -0,0 +1,110 @@
+// RadialDLA.java
+// -- classic single-cluster diffusion limited aggregation grown from one seed in the middle of the grid
+//    - particles are released one at a time on a launch circle just outside the cluster's bounding radius
+//    - a particle that drifts past the kill circle is released again from the launch circle
+//    - outside the bounding radius a particle jumps to a random point on the largest circle around it
+//      that cannot reach the cluster, which is where an unbiased random walk first leaves that disc
+//    - inside the bounding radius a DistanceField lets particles cross the empty fjords
+//      between branches the same way
+//    - so the work per particle follows the size of the cluster, not the size of the grid
+
+import java.util.Random;
+
+public class RadialDLA {
+	private static final int LAUNCH_GAP = 5;   // launch circle radius beyond the bounding radius
+	private static final int KILL_FACTOR = 3;  // kill circle radius, in launch radii
+	private static final int JUMP_MARGIN = 4;  // covers rounding, and Chebyshev vs. Euclidean distance
+	private static final int MIN_JUMP = 2;     // shorter jumps save less than they cost
+
+	private final Lattice grid;        // the cluster
+	private final DistanceField field; // distance to the cluster
+	private final int center;          // seed position is (center,center)
+	private final int maxRadius;       // the kill circle must stay inside the grid
+	private final Random rand;
+
+	private double boundingRadius; // distance from the seed to the farthest stuck particle
+
+	// constructors
+	public RadialDLA(Lattice grid, DistanceField field, Random r) {
+		this.grid = grid;
+		this.field = field;
+		this.center = grid.getSize()/2;
+		this.maxRadius = this.center - 2;
+		this.rand = r;
+
+		this.grid.occupy(this.center, this.center);
+		this.field.occupy(this.center, this.center);
+	}
+
+	// methods
+	public int getCenter() {
+		return this.center;
+	}
+
+	// -----------------------------------------------------------------------------------
+	// run(): releases particles one at a time until numParticles have stuck, the launch
+	//        circle no longer fits inside the grid or the monitor stops the run;
+	//        returns the number of particles stuck
+	public int run(int numParticles, SimMonitor monitor) {
+		int stuck = 0;
+		while ((stuck < numParticles) && monitor.proceed()) {
+			int launchRadius = (int) this.boundingRadius + LAUNCH_GAP;
+			if (launchRadius >= this.maxRadius) {
+				break; // the cluster has reached the edge of the grid
+			}
+			walk(launchRadius, Math.min(KILL_FACTOR*launchRadius, this.maxRadius));
+			stuck++;
+		}
+		return stuck;
+	}
+
+	// ---------------------------------------------------------------------------
+	// walk(): releases one particle and moves it until it sticks to the cluster
+	private void walk(int launchRadius, int killRadius) {
+		double angle = 2.0*Math.PI*this.rand.nextDouble();
+		int dx = (int) Math.round(launchRadius*Math.cos(angle)); // offset from the seed
+		int dy = (int) Math.round(launchRadius*Math.sin(angle));
+
+		while (true) {
+			double r = Math.sqrt((double) dx*dx + (double) dy*dy);
+			int jump = (int) (r - this.boundingRadius) - JUMP_MARGIN;
+
+			if (r > killRadius) {
+				// drifted too far, release again
+				angle = 2.0*Math.PI*this.rand.nextDouble();
+				dx = (int) Math.round(launchRadius*Math.cos(angle));
+				dy = (int) Math.round(launchRadius*Math.sin(angle));
+			}
+			else if (jump >= MIN_JUMP) {
+				// no part of the cluster is within jump of the particle
+				angle = 2.0*Math.PI*this.rand.nextDouble();
+				dx += (int) Math.round(jump*Math.cos(angle));
+				dy += (int) Math.round(jump*Math.sin(angle));
+			}
+			else {
+				int x = this.center + dx;
+				int y = this.center + dy;
+				// stay clear of the cluster and of the edges
+				int edge = Math.min(Math.min(x, y), Math.min(this.grid.getSize() - 1 - x, this.grid.getSize() - 1 - y));
+				int radius = Math.min(this.field.get(x, y) - 2, edge);
+
+				if (radius >= MIN_JUMP) {
+					angle = 2.0*Math.PI*this.rand.nextDouble();
+					dx += (int) Math.round(radius*Math.cos(angle));
+					dy += (int) Math.round(radius*Math.sin(angle));
+				}
+				else if (this.grid.hasOccupiedNeighbor(x, y)) {
+					this.grid.occupy(x, y);
+					this.field.occupy(x, y);
+					this.boundingRadius = Math.max(this.boundingRadius, r);
+					return;
+				}
+				else {
+					int move = this.rand.nextInt(8);
+					dx += Neighborhood.MOORE.dx(move);
+					dy += Neighborhood.MOORE.dy(move);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,15 @@
+// SimMonitor.java
+// -- lets a long-running DLA simulation show its progress and be stopped early
+
+public interface SimMonitor {
+	// never stops the simulation
+	SimMonitor NONE = new SimMonitor() {
+		public boolean proceed() {
+			return true;
+		}
+	};
+
+	// called by the simulation between steps, while the crystal is not changing;
+	// returns false to stop the simulation
+	boolean proceed();
+}
@@ -0,0 +1,131 @@
+// TiledLattice.java
+// -- off-heap lattice for DLA crystals too large for an OccupancyGrid or a BufferedImage
+//    - the lattice is cut into TILE x TILE tiles of one bit per cell, kept in direct buffers
+//    - a tile is only allocated when one of its cells is occupied, so memory follows the crystal
+//    - the heap only holds one reference per tile (about 150k of them for a 100k x 100k lattice)
+//    - direct buffers count against -XX:MaxDirectMemorySize, which may need raising for huge crystals
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+public class TiledLattice implements Lattice {
+	private static final int TILE_SHIFT = 8;
+	private static final int TILE = 1 << TILE_SHIFT; // tile width == height in cells
+	private static final int TILE_MASK = TILE - 1;
+	private static final int ROW_WORDS = TILE/64;    // longs per tile row
+
+	private final int size;           // lattice is size x size
+	private final int tilesPerSide;
+	private final LongBuffer[] tiles; // row by row, null until a cell in the tile is occupied
+
+	// constructors
+	public TiledLattice(int size) {
+		this.size = size;
+		this.tilesPerSide = (size + TILE - 1) >>> TILE_SHIFT;
+		this.tiles = new LongBuffer[this.tilesPerSide*this.tilesPerSide];
+	}
+
+	// methods
+	public int getSize() {
+		return this.size;
+	}
+
+	// ------------------------------------------------------------------
+	// allocatedTiles(): returns the number of tiles allocated so far
+	public int allocatedTiles() {
+		int n = 0;
+		for (LongBuffer tile : this.tiles) {
+			if (tile != null) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	// ------------------------------------------------------------------
+	// isOccupied(): returns whether cell (x,y) is a seed or stuck particle
+	public boolean isOccupied(int x, int y) {
+		LongBuffer tile = this.tiles[(y >>> TILE_SHIFT)*this.tilesPerSide + (x >>> TILE_SHIFT)];
+		if (tile == null) {
+			return false;
+		}
+		int cx = x & TILE_MASK;
+		return ((tile.get((y & TILE_MASK)*ROW_WORDS + (cx >>> 6)) >>> cx) & 1L) != 0;
+	}
+
+	// ------------------------------------------------------------------
+	// occupy(): mark cell (x,y) as a seed or stuck particle, allocating its tile if needed
+	public void occupy(int x, int y) {
+		int t = (y >>> TILE_SHIFT)*this.tilesPerSide + (x >>> TILE_SHIFT);
+		LongBuffer tile = this.tiles[t];
+		if (tile == null) {
+			tile = ByteBuffer.allocateDirect(TILE*TILE/8).order(ByteOrder.nativeOrder()).asLongBuffer();
+			this.tiles[t] = tile;
+		}
+		int cx = x & TILE_MASK;
+		int i = (y & TILE_MASK)*ROW_WORDS + (cx >>> 6);
+		tile.put(i, tile.get(i) | (1L << cx));
+	}
+
+	// ---------------------------------------------------------------------------------
+	// hasOccupiedNeighbor(): returns whether any cell in the Moore neighborhood of (x,y)
+	//                        is occupied; cells outside the lattice count as unoccupied
+	public boolean hasOccupiedNeighbor(int x, int y) {
+		int cx = x & TILE_MASK;
+		int cy = y & TILE_MASK;
+		if ((cx == 0) || (cx == TILE_MASK) || (cy == 0) || (cy == TILE_MASK)) {
+			return hasOccupiedNeighborSlow(x, y); // the neighborhood spans several tiles
+		}
+
+		// the whole neighborhood is in one tile
+		LongBuffer tile = this.tiles[(y >>> TILE_SHIFT)*this.tilesPerSide + (x >>> TILE_SHIFT)];
+		if (tile == null) {
+			return false;
+		}
+		int i = (cy - 1)*ROW_WORDS + ((cx - 1) >>> 6);
+		int offset = (cx - 1) & 63;
+		long above = window(tile, i, offset);
+		long level = window(tile, i + ROW_WORDS, offset) & 0b101; // skip the cell itself
+		long below = window(tile, i + 2*ROW_WORDS, offset);
+		return (above | level | below) != 0;
+	}
+
+	// neighborhoods on tile borders check each neighbor on its own
+	private boolean hasOccupiedNeighborSlow(int x, int y) {
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				int nx = x + dx;
+				int ny = y + dy;
+				if (((dx != 0) || (dy != 0)) &&
+					(nx >= 0) && (nx < this.size) && (ny >= 0) && (ny < this.size) &&
+					isOccupied(nx, ny)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// returns the 3 bits starting at bit offset of word i, reading into word i+1 when the
+	// window straddles two words (which never happens at the end of a tile row)
+	private long window(LongBuffer tile, int i, int offset) {
+		long bits = tile.get(i) >>> offset;
+		if (offset > 61) {
+			bits |= tile.get(i + 1) << (64 - offset);
+		}
+		return bits & 0b111;
+	}
+
+	// ------------------------------------------------------------------
+	// getRow(): copy row y into dst, cell x going to bit (x & 63) of dst[x >>> 6]
+	public void getRow(int y, long[] dst) {
+		int n = (this.size + 63) >>> 6;
+		int firstTile = (y >>> TILE_SHIFT)*this.tilesPerSide;
+		int row = (y & TILE_MASK)*ROW_WORDS;
+		for (int w = 0; w < n; w++) {
+			LongBuffer tile = this.tiles[firstTile + w/ROW_WORDS];
+			dst[w] = (tile == null) ? 0 : tile.get(row + w%ROW_WORDS);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+// CircleFile.java
+// - a compact binary file of an op art layout, written as the circles arrive and read back into
+//   any CircleSink, at any scale, without the source image
+// - layout: magic "OPCI", version, layout size (double), then one 15-byte record per circle:
+//   x, y, width as floats in layout pixels and the color as 3 bytes RGB; the end of the file
+//   ends the list
+// - floats keep 24 bits of mantissa, so positions stay exact to well under a pixel for layouts
+//   up to about a million pixels across
+
+import java.io.*;
+
+public class CircleFile implements CircleSink, Closeable {
+	static final int MAGIC = 0x4F504349; // "OPCI"
+	static final int VERSION = 1;
+
+	private final DataOutputStream out;
+
+	// constructors
+	// 	params: OutputStream out = destination of the file
+	//          double size = width (and height) of the layout, in pixels
+	public CircleFile(OutputStream out, double size) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+		this.out.writeDouble(size);
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// add() - write one circle record
+	public void add(double x, double y, double width, int rgb) throws IOException {
+		this.out.writeFloat((float) x);
+		this.out.writeFloat((float) y);
+		this.out.writeFloat((float) width);
+		this.out.writeByte(rgb >>> 16);
+		this.out.writeByte(rgb >>> 8);
+		this.out.writeByte(rgb);
+	}
+
+	public void close() throws IOException {
+		this.out.close();
+	}
+
+	// ---------------------------------------------------------------------------------
+	// replay() - read a circle file and pass every circle, scaled, to sink in the order written;
+	//            returns the layout size from the file's header
+	// 	params: InputStream in = the circle file, closed when done
+	//          CircleSink sink = where the circles go
+	//          double targetSize = size to scale the layout to, e.g. the print size in pixels,
+	//                              or 0 to keep the layout's own size
+	public static double replay(InputStream in, CircleSink sink, double targetSize) throws IOException {
+		try (DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16))) {
+			if ((data.readInt() != MAGIC) || (data.readInt() != VERSION)) {
+				throw new IOException("not a version " + VERSION + " circle file");
+			}
+			double size = data.readDouble();
+			double scale = (targetSize > 0) ? targetSize/size : 1.0;
+			while (true) {
+				float x;
+				try {
+					x = data.readFloat();
+				}
+				catch (EOFException exception) {
+					return size; // no more circles
+				}
+				float y = data.readFloat();
+				float width = data.readFloat();
+				int rgb = (data.readUnsignedByte() << 16) | (data.readUnsignedByte() << 8) | data.readUnsignedByte();
+				sink.add(x*scale, y*scale, width*scale, rgb);
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+// CircleList.java
+// - a growable list of circles, each the frame square it is inscribed in plus an RGB color,
+//   kept in parallel primitive arrays instead of one object per circle
+// - the order of the list is the order the circles are painted in
+// - a CircleSink, so a layout can be recorded in memory or streamed to a file by the same code
+
+import java.util.Arrays;
+
+public class CircleList implements CircleSink {
+	private double[] xs = new double[16];     // top left corners of the frames
+	private double[] ys = new double[16];
+	private double[] widths = new double[16]; // frame widths, i.e. circle diameters
+	private int[] rgbs = new int[16];         // colors, 0xRRGGBB
+	private int size = 0;
+
+	// methods
+	public int size() {
+		return this.size;
+	}
+
+	public double getX(int i) {
+		return this.xs[i];
+	}
+
+	public double getY(int i) {
+		return this.ys[i];
+	}
+
+	public double getWidth(int i) {
+		return this.widths[i];
+	}
+
+	public int getRGB(int i) {
+		return this.rgbs[i];
+	}
+
+	// ------------------------------------------------------------------
+	// add() - append a circle
+	// 	params: double x, y = top left corner of the circle's frame
+	//          double width = frame width, i.e. circle diameter
+	//          int rgb = circle color, 0xRRGGBB
+	public void add(double x, double y, double width, int rgb) {
+		if (this.size == this.xs.length) {
+			grow(this.size + 1);
+		}
+		this.xs[this.size] = x;
+		this.ys[this.size] = y;
+		this.widths[this.size] = width;
+		this.rgbs[this.size] = rgb;
+		this.size++;
+	}
+
+	// ------------------------------------------------------------------
+	// addAll() - append every circle of another list, in its order
+	public void addAll(CircleList other) {
+		if (this.size + other.size > this.xs.length) {
+			grow(this.size + other.size);
+		}
+		System.arraycopy(other.xs, 0, this.xs, this.size, other.size);
+		System.arraycopy(other.ys, 0, this.ys, this.size, other.size);
+		System.arraycopy(other.widths, 0, this.widths, this.size, other.size);
+		System.arraycopy(other.rgbs, 0, this.rgbs, this.size, other.size);
+		this.size += other.size;
+	}
+
+	// grow() - make room for at least capacity circles
+	private void grow(int capacity) {
+		int length = Math.max(capacity, 2*this.xs.length);
+		this.xs = Arrays.copyOf(this.xs, length);
+		this.ys = Arrays.copyOf(this.ys, length);
+		this.widths = Arrays.copyOf(this.widths, length);
+		this.rgbs = Arrays.copyOf(this.rgbs, length);
+	}
+}
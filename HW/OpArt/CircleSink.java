@@ -0,0 +1,15 @@
+// CircleSink.java
+// - receives the circles of an op art layout one at a time, in painting order
+// - CircleList keeps them in memory; SvgCircleWriter and CircleFile stream them to a file, so a
+//   layout can be exported without keeping it, or any raster of it, in memory
+
+import java.io.IOException;
+
+public interface CircleSink {
+	// ------------------------------------------------------------------
+	// add() - take the next circle
+	// 	params: double x, y = top left corner of the circle's frame
+	//          double width = frame width, i.e. circle diameter
+	//          int rgb = circle color, 0xRRGGBB
+	void add(double x, double y, double width, int rgb) throws IOException;
+}
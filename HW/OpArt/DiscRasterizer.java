@@ -0,0 +1,245 @@
+// DiscRasterizer.java
+// - paints antialiased, opaque discs straight into an image's int[] raster, without Java2D
+// - each pixel row is covered by SUBROWS evenly spaced scanlines; every scanline's span through the
+//   disc is measured exactly along the row (partial pixels at both ends), so a pixel's coverage is
+//   the fraction of its area inside the disc, to 1/SUBROWS vertically
+// - small discs, which are most of an op art quadtree, are blended from coverage masks instead:
+//   position and diameter are rounded to 1/16 pixel, and a mask is worked out (in the same way) the
+//   first time each rounded diameter and sub-pixel offset is seen, then shared by every rasterizer;
+//   a quadtree only has a few diameters, so only a few masks are ever made
+// - the color is blended over what's there by coverage; only the rows [fromRow,toRow) are
+//   touched, so several rasterizers can paint disjoint bands of one image at once
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class DiscRasterizer {
+	private static final int SUBROWS = 16;          // scanlines per pixel row
+	private static final int SUBPIXELS = 16;        // mask positions and diameters are rounded to 1/SUBPIXELS
+	private static final int MASK_DIAMETER = 16;    // discs narrower than this, once rounded, are painted from masks
+
+	// masks by rounded diameter and sub-pixel offset, see mask(); coverage 0-255, row by row; the
+	// rounded diameter is below MASK_DIAMETER*SUBPIXELS, so every key is below this many
+	private static final AtomicReferenceArray<int[]> masks
+		= new AtomicReferenceArray<int[]>(MASK_DIAMETER*SUBPIXELS*SUBPIXELS*SUBPIXELS);
+
+	private final int[] pixels;
+	private final int width;
+	private final int fromRow;
+	private final int toRow;
+	private final float[] coverage; // coverage of the row being painted, per pixel
+	private final float[] runs;     // starts (+) and ends (-) of fully covered runs, summed into coverage
+
+	// constructors
+	// 	params: BufferedImage image = TYPE_INT_ARGB (or TYPE_INT_RGB) image to paint on
+	//          int fromRow, toRow = rows [fromRow,toRow) that may be painted
+	public DiscRasterizer(BufferedImage image, int fromRow, int toRow) {
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		this.width = image.getWidth();
+		this.fromRow = Math.max(fromRow, 0);
+		this.toRow = Math.min(toRow, image.getHeight());
+		this.coverage = new float[this.width + 1];
+		this.runs = new float[this.width + 2];
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// fill() - paint a disc inscribed in a square frame
+	// 	params: double x, y = top left corner of the frame
+	//          double diameter = frame width, i.e. disc diameter
+	//          int rgb = disc color, 0xRRGGBB
+	public void fill(double x, double y, double diameter, int rgb) {
+		// the mask is picked by the rounded diameter, since a diameter just below MASK_DIAMETER rounds up to it
+		long d = Math.round(diameter*SUBPIXELS);
+		if ((d < MASK_DIAMETER*SUBPIXELS) && (x >= 0) && (y >= 0)) {
+			int fx = (int) Math.round(x*SUBPIXELS);
+			int fy = (int) Math.round(y*SUBPIXELS);
+			if (d > 0) {
+				fillMask(fx/SUBPIXELS, fy/SUBPIXELS, mask((int) d, fx % SUBPIXELS, fy % SUBPIXELS),
+				         (fx % SUBPIXELS + (int) d + SUBPIXELS - 1)/SUBPIXELS, rgb);
+			}
+			return;
+		}
+
+		double radius = diameter/2.0;
+		double cx = x + radius;
+		double cy = y + radius;
+		int top = Math.max((int) Math.floor(y), this.fromRow);
+		int bottom = Math.min((int) Math.ceil(y + diameter), this.toRow);
+		int left = Math.max((int) Math.floor(x), 0);
+		int right = Math.min((int) Math.ceil(x + diameter), this.width);
+		for (int row = top; row < bottom; row++) {
+			// pixels inside the span of the scanline farthest from the center are covered in full
+			double dy = Math.max(Math.abs(row + 0.5/SUBROWS - cy), Math.abs(row + 1 - 0.5/SUBROWS - cy));
+			double squared = radius*radius - dy*dy;
+			int innerLeft = right;
+			int innerRight = right;
+			if (squared > 0) {
+				double halfWidth = Math.sqrt(squared);
+				innerLeft = Math.min(Math.max((int) Math.ceil(cx - halfWidth), left), right);
+				innerRight = Math.max(Math.min((int) Math.floor(cx + halfWidth), right), innerLeft);
+			}
+			coverRow(cx, cy, radius, row, this.width, innerLeft, innerRight, this.coverage, this.runs);
+
+			int offset = row*this.width;
+			for (int col = left; col < right; col++) {
+				if (col == innerLeft) {
+					Arrays.fill(this.pixels, offset + innerLeft, offset + innerRight, 0xFF000000 | rgb);
+					col = innerRight;
+					if (col == right) {
+						break;
+					}
+				}
+				int alpha = Math.round(255*Math.min(this.coverage[col], 1f));
+				this.coverage[col] = 0f;
+				blend(offset + col, rgb, alpha);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// fillMask() - paint a small disc from its mask
+	// 	params: int x, y = pixel of the mask's top left corner
+	//          int[] mask = coverage mask, from mask()
+	//          int maskWidth = mask width; its height is mask.length/maskWidth
+	//          int rgb = disc color, 0xRRGGBB
+	private void fillMask(int x, int y, int[] mask, int maskWidth, int rgb) {
+		int top = Math.max(y, this.fromRow);
+		int bottom = Math.min(y + mask.length/maskWidth, this.toRow);
+		int left = Math.max(x, 0);
+		int right = Math.min(x + maskWidth, this.width);
+		for (int row = top; row < bottom; row++) {
+			int offset = row*this.width;
+			int at = (row - y)*maskWidth - x;
+			for (int col = left; col < right; col++) {
+				blend(offset + col, rgb, mask[at + col]);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// mask() - returns the coverage mask of a disc, making it the first time it's asked for
+	// 	params: int d = diameter, in 1/SUBPIXELS pixels, below MASK_DIAMETER*SUBPIXELS
+	//          int fx, fy = offset of the disc's frame in its top left pixel, in 1/SUBPIXELS pixels
+	private static int[] mask(int d, int fx, int fy) {
+		int key = (d*SUBPIXELS + fx)*SUBPIXELS + fy;
+		int[] mask = masks.get(key);
+		if (mask == null) {
+			int maskWidth = (fx + d + SUBPIXELS - 1)/SUBPIXELS;
+			int maskHeight = (fy + d + SUBPIXELS - 1)/SUBPIXELS;
+			double radius = (double) d/(2*SUBPIXELS);
+			double cx = (double) fx/SUBPIXELS + radius;
+			double cy = (double) fy/SUBPIXELS + radius;
+			float[] coverage = new float[maskWidth + 1];
+			float[] runs = new float[maskWidth + 2];
+			mask = new int[maskWidth*maskHeight];
+			for (int row = 0; row < maskHeight; row++) {
+				coverRow(cx, cy, radius, row, maskWidth, 0, 0, coverage, runs);
+				for (int col = 0; col < maskWidth; col++) {
+					mask[row*maskWidth + col] = Math.round(255*Math.min(coverage[col], 1f));
+					coverage[col] = 0f;
+				}
+			}
+			masks.set(key, mask); // a race only makes the same mask twice
+		}
+		return mask;
+	}
+
+	// ------------------------------------------------------------------
+	// blend() - blend rgb over pixel i by alpha (0-255), leaving the pixel opaque
+	private void blend(int i, int rgb, int alpha) {
+		if (alpha == 255) {
+			this.pixels[i] = 0xFF000000 | rgb;
+		}
+		else if (alpha != 0) {
+			int dst = this.pixels[i];
+			int r = blendChannel((dst >>> 16) & 0xFF, (rgb >>> 16) & 0xFF, alpha);
+			int g = blendChannel((dst >>> 8) & 0xFF, (rgb >>> 8) & 0xFF, alpha);
+			int b = blendChannel(dst & 0xFF, rgb & 0xFF, alpha);
+			this.pixels[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+		}
+	}
+
+	// blendChannel() - returns dst + (src - dst)*alpha/255, rounded
+	private static int blendChannel(int dst, int src, int alpha) {
+		int t = (src - dst)*alpha + 128;
+		return dst + ((t + (t >> 8)) >> 8);
+	}
+
+	// ---------------------------------------------------------------------------------
+	// coverRow() - add the coverage of one pixel row by a disc to coverage[], columns [0,width)
+	// 	params: double cx, cy, radius = the disc
+	//          int row = pixel row, covering [row,row+1)
+	//          int width = columns that may be covered
+	//          int innerLeft, innerRight = columns [innerLeft,innerRight) known to be covered in full,
+	//                                      which the caller fills itself and are skipped here
+	//          float[] coverage = per-pixel coverage to add to, at least width+1 long
+	//          float[] runs = all zeros, at least width+2 long; left all zeros
+	private static void coverRow(double cx, double cy, double radius, int row, int width, int innerLeft, int innerRight,
+	                             float[] coverage, float[] runs) {
+		float weight = 1f/SUBROWS;
+		int first = width;
+		int last = -1;
+		for (int s = 0; s < SUBROWS; s++) {
+			double dy = row + (s + 0.5)/SUBROWS - cy;
+			double squared = radius*radius - dy*dy;
+			if (squared <= 0) {
+				continue; // the scanline misses the disc
+			}
+			double halfWidth = Math.sqrt(squared);
+			double a = Math.max(cx - halfWidth, 0.0);
+			double b = Math.min(cx + halfWidth, width);
+			if (a >= b) {
+				continue;
+			}
+			int l = (int) a;
+			int r = (int) b;
+			first = Math.min(first, l);
+			last = Math.max(last, r);
+			// partial pixels at the ends of the span (r may be width, which is never read); an end
+			// that lands on an inner column is covered in full by the other scanlines anyway
+			boolean leftOuter = (l < innerLeft) || (l >= innerRight);
+			boolean rightOuter = (r < innerLeft) || (r >= innerRight);
+			if (l == r) {
+				if (leftOuter) {
+					coverage[l] += (float) (b - a)*weight;
+				}
+			}
+			else {
+				if (leftOuter) {
+					coverage[l] += (float) (l + 1 - a)*weight;
+				}
+				if (rightOuter) {
+					coverage[r] += (float) (b - r)*weight;
+				}
+				// pixels l+1 to r-1 are covered in full, apart from the inner ones
+				addRun(runs, l + 1, Math.min(r, innerLeft), weight);
+				addRun(runs, Math.max(l + 1, innerRight), r, weight);
+			}
+		}
+
+		// sum the runs into the coverage, clearing them for the next row
+		float run = 0f;
+		for (int col = first; col <= last; col++) {
+			if ((col == innerLeft) && (innerRight > innerLeft)) {
+				run += runs[col];
+				runs[col] = 0f;
+				col = innerRight - 1; // run is zero across the inner columns
+				continue;
+			}
+			run += runs[col];
+			runs[col] = 0f;
+			coverage[col] += run;
+		}
+	}
+
+	// addRun() - mark columns [from,to) as covered by one more scanline
+	private static void addRun(float[] runs, int from, int to, float weight) {
+		if (from < to) {
+			runs[from] += weight;
+			runs[to] -= weight;
+		}
+	}
+}
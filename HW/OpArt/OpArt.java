@@ -7,8 +7,8 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.*;
-import java.awt.geom.Ellipse2D;
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.*;
 import javax.swing.*;
 
@@ -31,13 +31,14 @@ class ImageFrame extends JFrame {
 	private final JFileChooser chooser; // create object to open files
 
 	private int diameter; // diameter of circles
+	private double threshold = QuadtreeRenderer.UNIFORM; // color variance above which a quadrant is split
 	private int srcWidth; // width of original opened file
 	private int srcHeight; // height of original opened file
 	private BufferedImage srcImg = null; // init null BufferedImage for source image
+	private SummedAreaTable srcSums = null; // integral images of the source's target square
 	private double tgtSize; // width == height of target image
 	private BufferedImage tgtImg = null; // init null BufferedImage for target image
-
-	private Ellipse2D.Double circle; // reuse same circle obj during recursion
+	private JCheckBoxMenuItem java2DItem; // paint circles with Java2D (slow, the original look) when checked
 
 	//==============================================================
 	// constructor
@@ -65,6 +66,7 @@ class ImageFrame extends JFrame {
 				public void actionPerformed(ActionEvent event) {
 					open();	// open/display img file
 					promptUser(); // prompt user for necessary fields (diameter)					
+					threshold = QuadtreeRenderer.UNIFORM; // split every quadrant down to the diameter
 					tgtImg = new BufferedImage((int) tgtSize, (int) tgtSize, BufferedImage.TYPE_INT_ARGB);
 					genOpArt(tgtImg); // generate circular pixel recursively
 					displayBufferedImage(tgtImg); // display final image
@@ -72,6 +74,63 @@ class ImageFrame extends JFrame {
 			}	);
 		fileMenu.add(loadSrcImgItem);
 
+		// --- Load source image, splitting only quadrants with enough detail
+		JMenuItem loadAdaptiveItem = new JMenuItem("Load source image (adaptive)");
+		loadAdaptiveItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					open();	// open/display img file
+					promptUser(); // prompt user for necessary fields (diameter)
+					threshold = promptForThreshold("Enter the color variance above which a region is split (e.g. 100).");
+					tgtImg = new BufferedImage((int) tgtSize, (int) tgtSize, BufferedImage.TYPE_INT_ARGB);
+					genOpArt(tgtImg); // generate circular pixel recursively
+					displayBufferedImage(tgtImg); // display final image
+				}
+			}	);
+		fileMenu.add(loadAdaptiveItem);
+
+		// --- Export the last layout as SVG
+		JMenuItem exportSvgItem = new JMenuItem("Export SVG");
+		exportSvgItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					exportLayout(true); // stream circles into an SVG file
+				}
+			}	);
+		fileMenu.add(exportSvgItem);
+
+		// --- Export the last layout as a binary circle file
+		JMenuItem exportCirclesItem = new JMenuItem("Export circle file");
+		exportCirclesItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					exportLayout(false); // stream circles into a circle file
+				}
+			}	);
+		fileMenu.add(exportCirclesItem);
+
+		// --- Render a circle file at any size
+		JMenuItem renderCirclesItem = new JMenuItem("Render circle file");
+		renderCirclesItem.addActionListener(new ActionListener()
+			{
+				public void actionPerformed(ActionEvent event) {
+					File file = getFile(); // choose circle file
+					if (file != null) {
+						int size = promptForSize("Enter the size n of the nxn image to render.");
+						if (size > 0) {
+							tgtImg = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+							renderCircleFile(file, tgtImg); // paint circles scaled to the image
+							displayBufferedImage(tgtImg); // display final image
+						}
+					}
+				}
+			}	);
+		fileMenu.add(renderCirclesItem);
+
+		// --- Paint circles with Java2D instead of the disc rasterizer
+		java2DItem = new JCheckBoxMenuItem("Java2D circles");
+		fileMenu.add(java2DItem);
+
 		// --- Exit
 		JMenuItem exitItem = new JMenuItem("Exit");
 		exitItem.addActionListener(new ActionListener()
@@ -119,6 +178,7 @@ class ImageFrame extends JFrame {
 			this.srcWidth = this.srcImg.getWidth();
 			this.srcHeight = this.srcImg.getHeight();
 			this.tgtSize = Math.min(this.srcWidth, this.srcHeight); // assign target width/height
+			this.srcSums = new SummedAreaTable(this.srcImg, (int) this.tgtSize, (int) this.tgtSize); // sum once, average any square in O(1)
 			displayBufferedImage(this.srcImg); // display img file
 		}
 		catch (IOException exception) {
@@ -156,6 +216,47 @@ class ImageFrame extends JFrame {
 		return diam;
 	}
 
+	// -----------------------------------------------------------
+	// promptForSize() - get the size of an image to render from user
+	// 	params: String msg = message w/ which to prompt user
+	private int promptForSize(String msg) {
+		String result = JOptionPane.showInputDialog(msg); // get String input from option pane
+		int size = 0; // init size to zero before checking correct format
+
+		try {
+			size = Integer.parseInt(result); // convert size to int form
+		}
+		catch (NumberFormatException exception) {
+			JOptionPane.showMessageDialog(this, exception); // throw exception
+		}
+		if (size < 0) {
+			// don't allow negative input
+			JOptionPane.showMessageDialog(this, "Input must be non-negative.", "Input must be non-negative.", JOptionPane.ERROR_MESSAGE);
+		}
+		return size;
+	}
+
+	// -----------------------------------------------------------------------
+	// promptForThreshold() - get the variance threshold of adaptive mode from user
+	// 	params: String msg = message w/ which to prompt user
+	private double promptForThreshold(String msg) {
+		String result = JOptionPane.showInputDialog(msg); // get String input from option pane
+		double thresh = 0.0; // init threshold to zero (split all but flat regions) before checking correct format
+
+		try {
+			thresh = Double.parseDouble(result); // convert threshold to double form
+		}
+		catch (NumberFormatException | NullPointerException exception) {
+			JOptionPane.showMessageDialog(this, exception); // throw exception
+		}
+		if (thresh < 0) {
+			// don't allow negative input
+			JOptionPane.showMessageDialog(this, "Input must be non-negative.", "Input must be non-negative.", JOptionPane.ERROR_MESSAGE);
+			thresh = 0.0;
+		}
+		return thresh;
+	}
+
 	// ------------------------------------------------------------------
 	// genOpArt() - generate pixelated version of image
 	// 	params: BufferedImage image = target image on which to draw based
@@ -163,17 +264,70 @@ class ImageFrame extends JFrame {
 	private void genOpArt(BufferedImage image) {
 		setBackground(image, BLACK);
 
-		// create Graphics2D object to draw & minimize lines with antialiasing
-		Graphics2D g2D = (Graphics2D) image.createGraphics();
-		g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		// recursively split image into 4 quadrants and record circles based on corresponding region's
+		// avg color in source image, starting with a big circle inscribed in the whole target image;
+		// subtrees (and the rasterizer's bands of the image) are handled in parallel; in adaptive mode
+		// only regions whose color variance is above the threshold are split
+		QuadtreeRenderer renderer = new QuadtreeRenderer(this.srcSums, this.tgtSize, this.diameter, this.threshold);
+		CircleList circles = renderer.record(ForkJoinPool.commonPool());
+		if ((this.java2DItem != null) && this.java2DItem.isSelected()) {
+			QuadtreeRenderer.draw(image, circles); // antialiased by Java2D, as the sequential op art painted
+		}
+		else {
+			QuadtreeRenderer.rasterize(image, circles, ForkJoinPool.commonPool()); // straight into the raster
+		}
+	}
 
-		this.circle = new Ellipse2D.Double(); // use the same circle object for each image generation
-		g2D.setColor(getAvgColor(0, 0, (int) this.tgtSize)); // get avg color of entire source image
-		circle.setFrame(0, 0, this.tgtSize, this.tgtSize); // inscribe circle in target image square
-		g2D.fill(this.circle); // fill big circle w/ avg color of entire source image
+	// ------------------------------------------------------------------
+	// exportLayout() - ask for a file and stream the circles of the last loaded image's op art
+	//                  (same diameter and threshold) into it, walking the quadtree again without
+	//                  keeping the circles or painting anything, so any layout fits in memory
+	// 	params: boolean svg = write SVG if true, a binary circle file otherwise
+	private void exportLayout(boolean svg) {
+		if (this.srcSums == null) {
+			JOptionPane.showMessageDialog(this, "Load a source image first.", "No layout to export.", JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
 
-		// recursively split image into 4 quadrants and draw circles based on corresponding region's avg color in source image
-		fillQuadrants(g2D, 0, 0, this.tgtSize);
+		QuadtreeRenderer renderer = new QuadtreeRenderer(this.srcSums, this.tgtSize, this.diameter, this.threshold);
+		try (OutputStream out = new FileOutputStream(chooser.getSelectedFile())) {
+			if (svg) {
+				try (SvgCircleWriter writer = new SvgCircleWriter(out, this.tgtSize, BLACK)) {
+					renderer.emit(writer);
+				}
+			}
+			else {
+				try (CircleFile writer = new CircleFile(out, this.tgtSize)) {
+					renderer.emit(writer);
+				}
+			}
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// renderCircleFile() - paint the circles of a circle file, scaled to fill image
+	// 	params: File file = circle file to read
+	//          BufferedImage image = TYPE_INT_ARGB image to paint on
+	private void renderCircleFile(File file, BufferedImage image) {
+		setBackground(image, BLACK);
+		final DiscRasterizer rasterizer = new DiscRasterizer(image, 0, image.getHeight());
+		try {
+			CircleFile.replay(new FileInputStream(file), new CircleSink()
+				{
+					public void add(double x, double y, double width, int rgb) {
+						rasterizer.fill(x, y, width, rgb);
+					}
+				}, image.getWidth());
+		}
+		catch (IOException exception) {
+			JOptionPane.showMessageDialog(this, exception);
+		}
 	}
 
 	// ------------------------------------------------------------------
@@ -188,70 +342,6 @@ class ImageFrame extends JFrame {
 		}
 	}
 
-	// -----------------------------------------------------------------------------------------
-	// fillQuadrants() - recurive method to split image into 4 quadrants and draw
-	//                   circles based on corresponding region's avg color in source image
-	// 	params: Graphics2D g2D = Graphics2D object used to draw/fill circles
-	//          double x = top left x position of frame in which to inscribe circle
-	//          double y = top left y position of frame in which to inscribe circle
-	//			double width = width of frame in which to inscribe circle, i.e., circle diameter
-	private void fillQuadrants(Graphics2D g2D, double x, double y, double width) {
-		// top-left quadrants
-		g2D.setColor(getAvgColor((int) x, (int) y, (int) (width/2.0)));
-		circle.setFrame(x, y, width/2.0, width/2.0);
-		g2D.fill(this.circle);
-		if ((int) (width/2.0) >= this.diameter) {
-			fillQuadrants(g2D, x, y, width/2.0);
-		}		
-
-		// top-right quadrants
-		g2D.setColor(getAvgColor((int) (x + width/2.0), (int) y, (int) (width/2.0)));
-		circle.setFrame(x + width/2.0, y, width/2.0, width/2.0);
-		g2D.fill(this.circle);
-		if ((int) (width/2.0) >= this.diameter) {
-			fillQuadrants(g2D, x + width/2.0, y, width/2.0);
-		}
-
-		// bottom-left quadrants
-		g2D.setColor(getAvgColor((int) x, (int) (y + width/2.0), (int) (width/2.0)));
-		circle.setFrame(x, y + width/2.0, width/2.0, width/2.0);
-		g2D.fill(this.circle);
-		if ((int) (width/2.0) >= this.diameter) {
-			fillQuadrants(g2D, x, y + width/2.0, width/2.0);
-		}
-
-		// bottom-right quadrants
-		g2D.setColor(getAvgColor((int) (x + width/2.0), (int) (y + width/2.0), (int) (width/2.0)));
-		circle.setFrame(x + width/2.0, y + width/2.0, width/2.0, width/2.0);
-		g2D.fill(this.circle);
-		if ((int) (width/2.0) >= this.diameter) {
-			fillQuadrants(g2D, x + width/2.0, y + width/2.0, width/2.0);
-		}
-	}
-
-	// ----------------------------------------------------------------------------------
-	// getAvgColor() - returns average color of a specified square region in source image
-	// 	params: int x = top left x position of desired region
-	//          int y = top left y position of desired region
-	//          int width = width (and height) of desired region
-	private Color getAvgColor(int x, int y, int width) {
-		int red   = 0;
-		int green = 0;
-		int blue  = 0;
-		int n     = 0;
-
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < width; j++) {
-				red   += ((this.srcImg.getRGB(i+x,j+y) >>> 16) & 0xFF);
-				green += ((this.srcImg.getRGB(i+x,j+y) >>> 8)  & 0xFF);
-				blue  += (this.srcImg.getRGB(i+x,j+y)          & 0xFF);
-				++n;
-			}
-		}
-		Color avgColor = new Color(red/n, green/n, blue/n);
-		return avgColor;
-	}
-	
 	// ---------------------------------------------------------------
 	// displayBufferedImage() - displayes an image in the content pane
 	// 	params: BufferedImage image = image to display
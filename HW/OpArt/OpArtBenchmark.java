@@ -0,0 +1,105 @@
+// OpArtBenchmark.java
+// - times painting an op art circle list with Java2D and with the DiscRasterizer, on one thread,
+//   so only the per-circle painting differs
+// - the source is a synthetic image (smooth waves plus noise, seeded), so the run needs no files
+// - one warmup paint per painter lets the JIT compile them before anything is measured, then every
+//   paint is timed (see Benchmark); the image is cleared to black before each paint, untimed
+// - reports circles per second, the speedup, and how far the rasterizer's pixels are from Java2D's
+//
+// usage: java OpArtBenchmark [size] [diameter] [repeats]   (default 1024, 2, 5)
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class OpArtBenchmark {
+	private static final long SEED = 42L;
+	private static final int WARMUPS = 1;
+
+	public static void main(String[] args) {
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1024;
+		int diameter = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+		int repeats = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+		BufferedImage source = syntheticImage(size, new Random(SEED));
+		ForkJoinPool pool = new ForkJoinPool(1);
+		CircleList circles = new QuadtreeRenderer(new SummedAreaTable(source, size, size), size, diameter).record(pool);
+
+		BufferedImage java2D = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage raster = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Benchmark.Result java2DResult = Benchmark.measure(new Paint(java2D, circles, pool, true), WARMUPS, repeats);
+		Benchmark.Result rasterResult = Benchmark.measure(new Paint(raster, circles, pool, false), WARMUPS, repeats);
+		double java2DRate = Benchmark.mean(java2DResult.rates(circles.size()));
+		double rasterRate = Benchmark.mean(rasterResult.rates(circles.size()));
+
+		int[] a = ((DataBufferInt) java2D.getRaster().getDataBuffer()).getData();
+		int[] b = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+		int max = 0;
+		long total = 0;
+		for (int i = 0; i < a.length; i++) {
+			for (int shift = 0; shift < 24; shift += 8) {
+				int difference = Math.abs(((a[i] >>> shift) & 0xFF) - ((b[i] >>> shift) & 0xFF));
+				max = Math.max(max, difference);
+				total += difference;
+			}
+		}
+
+		System.out.printf("%d circles, size %d, diameter %d%n", circles.size(), size, diameter);
+		System.out.printf("%-16s %14s %8s%n", "painter", "circles/s", "speedup");
+		System.out.printf("%-16s %14.0f %7.2fx%n", "Java2D", java2DRate, 1.0);
+		System.out.printf("%-16s %14.0f %7.2fx%n", "DiscRasterizer", rasterRate, rasterRate/java2DRate);
+		System.out.printf("difference from Java2D: max %d, mean %.3f per channel%n", max, (double) total/(3.0*a.length));
+		System.out.println("checksum " + (java2DResult.checksum() + rasterResult.checksum()));
+		pool.shutdown();
+	}
+
+	// ------------------------------------------------------------------------------
+	// syntheticImage() - returns a size x size image of smooth color waves with some noise
+	private static BufferedImage syntheticImage(int size, Random rand) {
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				int red = (int) (128 + 100*Math.sin(x/37.0)*Math.cos(y/53.0)) + rand.nextInt(20);
+				int green = x*255/size;
+				int blue = (y < size/2) ? 200 : 5*rand.nextInt(20);
+				image.setRGB(x, y, (Math.min(red, 255) << 16) | (green << 8) | blue);
+			}
+		}
+		return image;
+	}
+
+	//##################################################################
+
+	// one paint of the circles over a black image; each run returns the image's last pixel
+	private static class Paint implements Benchmark.Trial {
+		private final BufferedImage image; // TYPE_INT_ARGB image to paint on
+		private final int[] pixels;
+		private final CircleList circles;  // circles to paint
+		private final ForkJoinPool pool;   // pool the rasterizer paints bands on
+		private final boolean java2D;      // paint with Java2D if true, with the DiscRasterizer otherwise
+
+		Paint(BufferedImage image, CircleList circles, ForkJoinPool pool, boolean java2D) {
+			this.image = image;
+			this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			this.circles = circles;
+			this.pool = pool;
+			this.java2D = java2D;
+		}
+
+		public void setUp() {
+			Arrays.fill(this.pixels, 0xFF000000);
+		}
+
+		public long run() {
+			if (this.java2D) {
+				QuadtreeRenderer.draw(this.image, this.circles);
+			}
+			else {
+				QuadtreeRenderer.rasterize(this.image, this.circles, this.pool);
+			}
+			return this.pixels[this.pixels.length - 1];
+		}
+	}
+}
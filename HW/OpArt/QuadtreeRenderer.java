@@ -0,0 +1,251 @@
+// QuadtreeRenderer.java
+// - the op art quadtree: recorded on every core, then painted with Java2D or a DiscRasterizer
+// - record(): walks the quadtree as fork/join tasks and records every circle into a CircleList;
+//   subtrees at least FORK_WIDTH wide become tasks of their own, and each task records into its
+//   own list, which its parent splices in after the quadrant's circle, so the final list is in
+//   exactly the order the sequential recursion would paint
+// - draw(): paints the list through one unclipped, antialiased Graphics2D in list order, exactly as
+//   the sequential op art did, so the image is pixel-identical to it; Java2D trims shapes to a
+//   clip before antialiasing them, so splitting this into clipped bands would move edge pixels
+// - rasterize(): paints the list in horizontal bands, one fork/join task per band, with a
+//   DiscRasterizer instead of Java2D; the circles reaching into each band are sorted out first and
+//   painted in list order, which is much faster for millions of small circles but antialiases
+//   edges slightly differently
+// - emit(): walks the quadtree on the calling thread and hands each circle straight to a CircleSink,
+//   in painting order, keeping nothing; for streaming a layout to a file in constant memory
+// - adaptive mode: a quadrant is only split further if its color variance is above a threshold,
+//   so flat regions keep one big circle while detailed ones go down to the minimum diameter
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+public class QuadtreeRenderer {
+	private static final double FORK_WIDTH = 64.0; // smallest subtree worth its own task
+	private static final int BAND_ROWS = 32;       // rows painted by one band task
+
+	public static final double UNIFORM = -1.0;     // threshold that splits every quadrant
+
+	private final SummedAreaTable sums; // source averages
+	private final double size;          // width == height of target image
+	private final int diameter;         // minimum circle diameter
+	private final double threshold;     // color variance above which a quadrant is split
+
+	// constructors
+	// 	params: SummedAreaTable sums = summed-area tables of the source image's target square
+	//          double size = width (and height) of the target image
+	//          int diameter = minimum circle diameter
+	public QuadtreeRenderer(SummedAreaTable sums, double size, int diameter) {
+		this(sums, size, diameter, UNIFORM);
+	}
+
+	// 	params: double threshold = color variance (see SummedAreaTable.getVariance()) a quadrant
+	//                             must exceed to be split, or UNIFORM to split them all
+	public QuadtreeRenderer(SummedAreaTable sums, double size, int diameter, double threshold) {
+		this.sums = sums;
+		this.size = size;
+		this.diameter = diameter;
+		this.threshold = threshold;
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// record() - returns every circle of the op art in painting order, starting with the
+	//            circle inscribed in the whole target image
+	// 	params: ForkJoinPool pool = pool to walk subtrees on
+	public CircleList record(ForkJoinPool pool) {
+		CircleList circles = new CircleList();
+		circles.add(0, 0, this.size, this.sums.getAvgRGB(0, 0, (int) this.size));
+		circles.addAll(pool.invoke(new Quadrants(0, 0, this.size)));
+		return circles;
+	}
+
+	// ------------------------------------------------------------------
+	// emit() - hand every circle of the op art to sink in painting order, as record() lists them
+	// 	params: CircleSink sink = where the circles go
+	public void emit(CircleSink sink) throws IOException {
+		sink.add(0, 0, this.size, this.sums.getAvgRGB(0, 0, (int) this.size));
+		fillQuadrants(sink, 0, 0, this.size);
+	}
+
+	// ------------------------------------------------------------------
+	// draw() - paint circles onto image with Java2D, antialiased, in list order, on the calling thread
+	// 	params: BufferedImage image = image to paint on
+	//          CircleList circles = circles to paint
+	public static void draw(BufferedImage image, CircleList circles) {
+		Graphics2D g2D = image.createGraphics();
+		g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		Ellipse2D.Double circle = new Ellipse2D.Double(); // reuse same circle obj for every circle
+		for (int i = 0; i < circles.size(); i++) {
+			g2D.setColor(new Color(circles.getRGB(i)));
+			circle.setFrame(circles.getX(i), circles.getY(i), circles.getWidth(i), circles.getWidth(i));
+			g2D.fill(circle);
+		}
+		g2D.dispose();
+	}
+
+	// ------------------------------------------------------------------
+	// rasterize() - paint circles straight into image's raster with a DiscRasterizer, in list order
+	// 	params: BufferedImage image = TYPE_INT_ARGB image to paint on
+	//          CircleList circles = circles to paint
+	//          ForkJoinPool pool = pool to paint bands on
+	public static void rasterize(BufferedImage image, CircleList circles, ForkJoinPool pool) {
+		int[][] bands = bandCircles(circles, image.getHeight());
+		pool.invoke(new Band(image, circles, bands, 0, bands.length));
+	}
+
+	// ------------------------------------------------------------------
+	// bandCircles() - returns, for every band of BAND_ROWS rows, the indices of the circles that
+	//                 reach into it, in list order; counted first, then filled, in two passes
+	private static int[][] bandCircles(CircleList circles, int height) {
+		int[][] bands = new int[(height + BAND_ROWS - 1)/BAND_ROWS][];
+		int[] counts = new int[bands.length];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < circles.size(); i++) {
+				double y = circles.getY(i);
+				int first = Math.max((int) Math.floor(y), 0)/BAND_ROWS;
+				int last = Math.min((int) Math.ceil(y + circles.getWidth(i)), height - 1)/BAND_ROWS;
+				for (int band = first; band <= last; band++) {
+					if (pass == 0) {
+						counts[band]++;
+					}
+					else {
+						bands[band][bands[band].length - counts[band]--] = i;
+					}
+				}
+			}
+			if (pass == 0) {
+				for (int band = 0; band < bands.length; band++) {
+					bands[band] = new int[counts[band]];
+				}
+			}
+		}
+		return bands;
+	}
+
+	// -----------------------------------------------------------------------------------------
+	// fillQuadrants() - record the circles of the four quadrants of a frame and, recursively,
+	//                   of their quadrants, as the sequential op art does
+	// 	params: CircleSink circles = sink to record into
+	//          double x, y = top left position of frame
+	//          double width = width of frame
+	private void fillQuadrants(CircleSink circles, double x, double y, double width) throws IOException {
+		double half = width/2.0;
+		for (int q = 0; q < 4; q++) {
+			// top-left, top-right, bottom-left, bottom-right
+			double qx = ((q & 1) == 0) ? x : x + half;
+			double qy = ((q & 2) == 0) ? y : y + half;
+			circles.add(qx, qy, half, this.sums.getAvgRGB((int) qx, (int) qy, (int) half));
+			if (split(qx, qy, half)) {
+				fillQuadrants(circles, qx, qy, half);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// split() - returns whether a quadrant is split into quadrants of its own: it must be at
+	//           least the minimum diameter and, in adaptive mode, varied enough in color
+	// 	params: double x, y = top left position of quadrant
+	//          double width = width of quadrant
+	private boolean split(double x, double y, double width) {
+		if ((int) width < this.diameter) {
+			return false;
+		}
+		return (this.threshold < 0) || (this.sums.getVariance((int) x, (int) y, (int) width) > this.threshold);
+	}
+
+	//##################################################################
+
+	// records the circles of the four quadrants of a frame and their subtrees; quadrants at
+	// least FORK_WIDTH wide are recorded by tasks of their own, forked before any is joined
+	private class Quadrants extends RecursiveTask<CircleList> {
+		private static final long serialVersionUID = 1L;
+
+		private final double x;
+		private final double y;
+		private final double width;
+
+		Quadrants(double x, double y, double width) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+		}
+
+		protected CircleList compute() {
+			CircleList circles = new CircleList();
+			double half = this.width/2.0;
+			if (half < FORK_WIDTH) {
+				try {
+					fillQuadrants(circles, this.x, this.y, this.width);
+				}
+				catch (IOException exception) {
+					throw new UncheckedIOException(exception); // a CircleList never throws
+				}
+				return circles;
+			}
+
+			Quadrants[] subtrees = new Quadrants[4];
+			for (int q = 0; q < 4; q++) {
+				double qx = ((q & 1) == 0) ? this.x : this.x + half;
+				double qy = ((q & 2) == 0) ? this.y : this.y + half;
+				if (split(qx, qy, half)) {
+					subtrees[q] = new Quadrants(qx, qy, half);
+					subtrees[q].fork();
+				}
+			}
+			for (int q = 0; q < 4; q++) {
+				double qx = ((q & 1) == 0) ? this.x : this.x + half;
+				double qy = ((q & 2) == 0) ? this.y : this.y + half;
+				circles.add(qx, qy, half, sums.getAvgRGB((int) qx, (int) qy, (int) half));
+				if (subtrees[q] != null) {
+					circles.addAll(subtrees[q].join());
+				}
+			}
+			return circles;
+		}
+	}
+
+	//##################################################################
+
+	// bands [from,to) of BAND_ROWS rows each, split in half down to single bands; each band paints
+	// the circles listed for it by bandCircles() with a DiscRasterizer
+	private static class Band extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedImage image;
+		private final CircleList circles;
+		private final int[][] bands;
+		private final int from;
+		private final int to;
+
+		Band(BufferedImage image, CircleList circles, int[][] bands, int from, int to) {
+			this.image = image;
+			this.circles = circles;
+			this.bands = bands;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Band(this.image, this.circles, this.bands, this.from, middle),
+				          new Band(this.image, this.circles, this.bands, middle, this.to));
+				return;
+			}
+
+			int[] band = this.bands[this.from];
+			int top = this.from*BAND_ROWS;
+			int bottom = Math.min(top + BAND_ROWS, this.image.getHeight());
+			DiscRasterizer rasterizer = new DiscRasterizer(this.image, top, bottom);
+			for (int i : band) {
+				rasterizer.fill(this.circles.getX(i), this.circles.getY(i), this.circles.getWidth(i), this.circles.getRGB(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+// SummedAreaTable.java
+// - per-channel summed-area tables (integral images) of an image, built once in a single pass
+// - entry (x,y) of a table holds the sum of the channel over every pixel above and to the left of it,
+//   so the sum over any rectangle takes four lookups, however big the rectangle is
+// - a fourth table sums r^2 + g^2 + b^2, from which the color variance of any rectangle follows
+//   in constant time too
+// - sums are longs, so they never overflow, at the cost of 32 bytes per pixel
+
+import java.awt.image.BufferedImage;
+
+public class SummedAreaTable {
+	private final int width;   // size of the image region covered
+	private final int height;
+	private final int stride;  // width + 1: tables have an extra row and column of zeros
+	private final long[] red;
+	private final long[] green;
+	private final long[] blue;
+	private final long[] squares; // r^2 + g^2 + b^2
+
+	// constructors
+	// 	params: BufferedImage image = image to sum
+	//          int width, height = size of the top left region of image to cover
+	public SummedAreaTable(BufferedImage image, int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.stride = width + 1;
+		int entries = (width + 1)*(height + 1);
+		this.red   = new long[entries];
+		this.green = new long[entries];
+		this.blue  = new long[entries];
+		this.squares = new long[entries];
+
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			image.getRGB(0, y, width, 1, row, 0, width); // one row at a time, not a getRGB() per pixel
+			long redRow   = 0;
+			long greenRow = 0;
+			long blueRow  = 0;
+			long squaresRow = 0;
+			int above = y*this.stride + 1;
+			int at = above + this.stride;
+			for (int x = 0; x < width; x++, above++, at++) {
+				int r = (row[x] >>> 16) & 0xFF;
+				int g = (row[x] >>> 8)  & 0xFF;
+				int b = row[x]          & 0xFF;
+				redRow   += r;
+				greenRow += g;
+				blueRow  += b;
+				squaresRow += r*r + g*g + b*b;
+				this.red[at]   = this.red[above]   + redRow;
+				this.green[at] = this.green[above] + greenRow;
+				this.blue[at]  = this.blue[above]  + blueRow;
+				this.squares[at] = this.squares[above] + squaresRow;
+			}
+		}
+	}
+
+	// methods
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	// ----------------------------------------------------------------------------------
+	// getAvgRGB() - returns the average RGB color (channel sums divided by the pixel count,
+	//               rounded down) of a square region, as 0xRRGGBB
+	// 	params: int x = top left x position of region
+	//          int y = top left y position of region
+	//          int width = width (and height) of region
+	public int getAvgRGB(int x, int y, int width) {
+		long n = (long) width*width;
+		return (int) ((sum(this.red, x, y, width)/n) << 16)
+			| (int) ((sum(this.green, x, y, width)/n) << 8)
+			| (int) (sum(this.blue, x, y, width)/n);
+	}
+
+	// ----------------------------------------------------------------------------------
+	// getVariance() - returns the color variance of a square region: the variances of its red,
+	//                 green and blue channels added up, E[r^2 + g^2 + b^2] - (E[r]^2 + E[g]^2 + E[b]^2)
+	// 	params: int x = top left x position of region
+	//          int y = top left y position of region
+	//          int width = width (and height) of region
+	public double getVariance(int x, int y, int width) {
+		double n = (double) width*width;
+		double red   = sum(this.red, x, y, width)/n;
+		double green = sum(this.green, x, y, width)/n;
+		double blue  = sum(this.blue, x, y, width)/n;
+		double variance = sum(this.squares, x, y, width)/n - (red*red + green*green + blue*blue);
+		return Math.max(variance, 0.0); // rounding can leave a flat region a hair below zero
+	}
+
+	// ----------------------------------------------------------------------------------
+	// sum() - returns the sum of one channel's table over a square region
+	private long sum(long[] table, int x, int y, int width) {
+		int top = y*this.stride + x;
+		int bottom = top + width*this.stride;
+		return table[bottom + width] - table[bottom] - table[top + width] + table[top];
+	}
+}
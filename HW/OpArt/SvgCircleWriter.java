@@ -0,0 +1,84 @@
+// SvgCircleWriter.java
+// - streams an op art layout into an SVG file, one <circle> element per circle as it arrives,
+//   so memory use doesn't grow with the number of circles
+// - the view box is the target image's size, so the SVG can be printed at any size
+// - coordinates are written with at most 3 decimals (1/1000 pixel), with no trailing zeros
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+public class SvgCircleWriter implements CircleSink, Closeable {
+	private final Writer out;
+	private final StringBuilder line = new StringBuilder(64); // reused for every element
+
+	// constructors
+	// 	params: OutputStream out = destination of the SVG
+	//          double size = width (and height) of the layout, in pixels
+	//          int background = RGB color behind the circles
+	public SvgCircleWriter(OutputStream out, double size, int background) throws IOException {
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+		this.line.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+			.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ");
+		appendNumber(size);
+		this.line.append(' ');
+		appendNumber(size);
+		this.line.append("\" width=\"");
+		appendNumber(size);
+		this.line.append("\" height=\"");
+		appendNumber(size);
+		this.line.append("\">\n<rect width=\"100%\" height=\"100%\" fill=\"");
+		appendColor(background);
+		this.line.append("\"/>\n");
+		flushLine();
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// add() - write one circle element
+	public void add(double x, double y, double width, int rgb) throws IOException {
+		double radius = width/2.0;
+		this.line.append("<circle cx=\"");
+		appendNumber(x + radius);
+		this.line.append("\" cy=\"");
+		appendNumber(y + radius);
+		this.line.append("\" r=\"");
+		appendNumber(radius);
+		this.line.append("\" fill=\"");
+		appendColor(rgb);
+		this.line.append("\"/>\n");
+		flushLine();
+	}
+
+	// ------------------------------------------------------------------
+	// close() - end the SVG and close the file
+	public void close() throws IOException {
+		this.out.write("</svg>\n");
+		this.out.close();
+	}
+
+	// appendNumber() - append a non-negative number rounded to 3 decimals
+	private void appendNumber(double value) {
+		long thousandths = Math.round(value*1000);
+		this.line.append(thousandths/1000);
+		int fraction = (int) (thousandths % 1000);
+		if (fraction != 0) {
+			this.line.append('.');
+			for (int digit = 100; fraction != 0; digit /= 10) {
+				this.line.append((char) ('0' + fraction/digit));
+				fraction %= digit;
+			}
+		}
+	}
+
+	// appendColor() - append #rrggbb
+	private void appendColor(int rgb) {
+		String hex = Integer.toHexString(0x1000000 | (rgb & 0xFFFFFF)); // leading 1 keeps the zeros
+		this.line.append('#').append(hex, 1, 7);
+	}
+
+	// flushLine() - hand the line to the buffered writer and start a new one
+	private void flushLine() throws IOException {
+		this.out.append(this.line);
+		this.line.setLength(0);
+	}
+}
@@ -0,0 +1,156 @@
+// Benchmark.java
+// -- the warmup and timing loop shared by the projects' benchmarks (FractalsBenchmark,
+//    DrunkenWalkBenchmark, BilinearBenchmark, OpArtBenchmark)
+//    - a Trial is set up (untimed) and run (timed) once per iteration; warmup iterations let the
+//      JIT compile the measured code before anything is timed
+//    - every run returns a value that depends on its work (a checksum, or a count of the work
+//      done); the values are summed, and printing the sum keeps the JIT from dropping the work
+//    - also counts the bytes the timed runs allocate on the measuring thread, where the JVM can
+//
+// compile with -sourcepath ../common
+
+import java.lang.management.ManagementFactory;
+
+public final class Benchmark {
+	// allocation counter of the current thread, null if the JVM doesn't provide one
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+	private Benchmark() {
+	}
+
+	// ------------------------------------------------------------------------------
+	// measure(): set up and run trial warmups times untimed, then repeats times timed
+	// params:
+	// - Trial trial = work to measure
+	// - int warmups = untimed iterations first
+	// - int repeats = timed iterations, at least 1
+	public static Result measure(Trial trial, int warmups, int repeats) {
+		long sum = 0;
+		for (int i = 0; i < warmups; i++) {
+			trial.setUp();
+			sum += trial.run();
+		}
+
+		long[] nanos = new long[repeats];
+		long[] values = new long[repeats];
+		long allocated = 0;
+		for (int i = 0; i < repeats; i++) {
+			trial.setUp();
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			values[i] = trial.run();
+			nanos[i] = System.nanoTime() - start;
+			allocated += allocatedBytes() - allocatedBefore;
+		}
+		return new Result(nanos, values, (THREADS == null) ? -1L : allocated, sum);
+	}
+
+	public static double mean(double[] values) {
+		double sum = 0.0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum/values.length;
+	}
+
+	// sample standard deviation, 0 for a single value
+	public static double deviation(double[] values, double mean) {
+		if (values.length < 2) {
+			return 0.0;
+		}
+		double sum = 0.0;
+		for (double value : values) {
+			sum += (value - mean)*(value - mean);
+		}
+		return Math.sqrt(sum/(values.length - 1));
+	}
+
+	private static long allocatedBytes() {
+		return (THREADS == null) ? 0L : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if ((bean instanceof com.sun.management.ThreadMXBean) == false) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (threads.isThreadAllocatedMemorySupported() == false) {
+			return null;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+
+	//##################################################################
+
+	// one piece of work to time
+	public interface Trial {
+		// setUp(): prepare the next run; not timed
+		default void setUp() {
+		}
+
+		// run(): do the work once and return a value that depends on it
+		long run();
+	}
+
+	//##################################################################
+
+	// the timed runs of one measure()
+	public static final class Result {
+		private final long[] nanos;   // time of each timed run
+		private final long[] values;  // value returned by each timed run
+		private final long allocated; // bytes allocated by the timed runs, -1 if unknown
+		private final long sum;       // sum of every value returned, warmups included
+
+		Result(long[] nanos, long[] values, long allocated, long sum) {
+			this.nanos = nanos;
+			this.values = values;
+			this.allocated = allocated;
+			long total = sum;
+			for (long value : values) {
+				total += value;
+			}
+			this.sum = total;
+		}
+
+		// rates(): work per second of each timed run
+		// params:
+		// - double work = work done by one run (steps, pixels, ...)
+		public double[] rates(double work) {
+			double[] rates = new double[this.nanos.length];
+			for (int i = 0; i < rates.length; i++) {
+				rates[i] = work/(this.nanos[i]*1e-9);
+			}
+			return rates;
+		}
+
+		// rates(): work per second of each timed run, taking the value it returned as its work
+		public double[] rates() {
+			double[] rates = new double[this.nanos.length];
+			for (int i = 0; i < rates.length; i++) {
+				rates[i] = this.values[i]/(this.nanos[i]*1e-9);
+			}
+			return rates;
+		}
+
+		// totalValue(): sum of the values returned by the timed runs
+		public long totalValue() {
+			long total = 0;
+			for (long value : this.values) {
+				total += value;
+			}
+			return total;
+		}
+
+		// allocated(): bytes allocated on the measuring thread by the timed runs, -1 if unknown
+		public long allocated() {
+			return this.allocated;
+		}
+
+		// checksum(): sum of every value returned, warmups included; print it so no run can be dropped
+		public long checksum() {
+			return this.sum;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+// Neighborhood.java
+// -- the moves a lattice walker can take in one step, as precomputed offset tables
+//    - move codes are in [0,size()); code i moves by (dx(i), dy(i))
+//    - Moore codes 0-3 are the von Neumann moves, so a walker drawing codes from [0,4)
+//      walks the von Neumann neighborhood with the same tables
+//    - shared by the DrunkenWalk and Fractals simulators (compile with -sourcepath ../common)
+
+import java.util.Arrays;
+
+public final class Neighborhood {
+	// moves: down, left, up, right, left-down, left-up, right-up, right-down
+	private static final int[] MOORE_DX = { 0, -1,  0, 1, -1, -1,  1, 1 };
+	private static final int[] MOORE_DY = { 1,  0, -1, 0,  1, -1, -1, 1 };
+
+	public static final Neighborhood VON_NEUMANN = new Neighborhood("von Neumann", 4);
+	public static final Neighborhood MOORE = new Neighborhood("Moore", 8);
+
+	private final String name;
+	private final int[] dx; // x offset of each move code
+	private final int[] dy; // y offset of each move code
+
+	// constructors
+	private Neighborhood(String name, int size) {
+		this.name = name;
+		this.dx = Arrays.copyOf(MOORE_DX, size);
+		this.dy = Arrays.copyOf(MOORE_DY, size);
+	}
+
+	// methods
+	public String getName() {
+		return this.name;
+	}
+
+	// ------------------------------------------------------------------
+	// size(): returns the number of move codes
+	public int size() {
+		return this.dx.length;
+	}
+
+	public int dx(int move) {
+		return this.dx[move];
+	}
+
+	public int dy(int move) {
+		return this.dy[move];
+	}
+
+	// ------------------------------------------------------------------
+	// bits(): returns the number of bits a move code takes (2 for von Neumann, 3 for Moore)
+	public int bits() {
+		return 32 - Integer.numberOfLeadingZeros(this.dx.length - 1);
+	}
+
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,170 @@
+// PngRowWriter.java
+// -- writes a PNG one row at a time, so images larger than the heap can be saved
+//    - rows are deflated into IDAT chunks as they arrive; only one chunk's worth is buffered
+//    - rows are written unfiltered, which suits the flat colors of palette images, or with the Sub
+//      filter (each byte minus the same channel of the pixel to its left), which turns smooth
+//      gradients into runs of near-constant bytes that deflate well
+//    - shared by the DrunkenWalk, Fractals and BilinearGradient projects (compile with -sourcepath ../common)
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class PngRowWriter implements Closeable {
+	public static final int GRAYSCALE  = 0; // PNG color types
+	public static final int TRUECOLOR  = 2;
+	public static final int PALETTE    = 3;
+	public static final int TRUECOLOR_ALPHA = 6;
+
+	public static final int FILTER_NONE = 0; // PNG row filters
+	public static final int FILTER_SUB  = 1;
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int CHUNK_SIZE = 1 << 16; // bytes of compressed data per IDAT chunk
+
+	private final DataOutputStream out;
+	private final DeflaterOutputStream idat; // deflates rows into chunks
+	private final IdatStream chunks;         // writes deflated rows as IDAT chunks
+	private final Deflater deflater;
+	private final int rowBytes;   // bytes per row, without the filter byte
+	private final int pixelBytes; // bytes per pixel, at least 1, as the Sub filter counts them
+	private byte[] filtered;      // the last row after filtering, allocated on first use
+	private final int height;
+	private int rowsWritten;
+
+	// constructors
+	// params:
+	// - OutputStream out = destination of the PNG
+	// - int width, height = image size in pixels
+	// - int bitDepth = bits per channel (or per palette index)
+	// - int colorType = GRAYSCALE, TRUECOLOR, PALETTE or TRUECOLOR_ALPHA
+	// - int[] palette = RGB colors for PALETTE images, null otherwise
+	public PngRowWriter(OutputStream out, int width, int height, int bitDepth, int colorType, int[] palette) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+		this.height = height;
+		int channels = (colorType == TRUECOLOR) ? 3 : ((colorType == TRUECOLOR_ALPHA) ? 4 : 1);
+		this.rowBytes = (int) (((long) width*channels*bitDepth + 7)/8);
+		this.pixelBytes = Math.max(1, channels*bitDepth/8);
+
+		this.out.write(SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(bitDepth);
+		data.writeByte(colorType);
+		data.writeByte(0); // deflate
+		data.writeByte(0); // adaptive filtering (the filter is chosen per row in writeRow())
+		data.writeByte(0); // not interlaced
+		writeChunk("IHDR", header.toByteArray(), header.size());
+
+		if (palette != null) {
+			byte[] plte = new byte[3*palette.length];
+			for (int i = 0; i < palette.length; i++) {
+				plte[3*i]   = (byte) (palette[i] >>> 16);
+				plte[3*i+1] = (byte) (palette[i] >>> 8);
+				plte[3*i+2] = (byte) palette[i];
+			}
+			writeChunk("PLTE", plte, plte.length);
+		}
+
+		this.deflater = new Deflater(Deflater.BEST_SPEED);
+		this.chunks = new IdatStream();
+		this.idat = new DeflaterOutputStream(this.chunks, this.deflater, CHUNK_SIZE);
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// writeRow(): write the next row, packed as PNG expects (big-endian, high bits first)
+	public void writeRow(byte[] row) throws IOException {
+		writeRow(row, FILTER_NONE);
+	}
+
+	// ------------------------------------------------------------------
+	// writeRow(): write the next row through the given filter, FILTER_NONE or FILTER_SUB
+	public void writeRow(byte[] row, int filter) throws IOException {
+		if (this.rowsWritten == this.height) {
+			throw new IllegalStateException("all " + this.height + " rows are written");
+		}
+		if ((filter != FILTER_NONE) && (filter != FILTER_SUB)) {
+			throw new IllegalArgumentException("unsupported filter " + filter);
+		}
+		this.idat.write(filter);
+		if (filter == FILTER_SUB) {
+			if (this.filtered == null) {
+				this.filtered = new byte[this.rowBytes];
+			}
+			System.arraycopy(row, 0, this.filtered, 0, Math.min(this.pixelBytes, this.rowBytes));
+			for (int i = this.pixelBytes; i < this.rowBytes; i++) {
+				this.filtered[i] = (byte) (row[i] - row[i - this.pixelBytes]);
+			}
+			this.idat.write(this.filtered, 0, this.rowBytes);
+		}
+		else {
+			this.idat.write(row, 0, this.rowBytes);
+		}
+		this.rowsWritten++;
+	}
+
+	// ------------------------------------------------------------------
+	// close(): finish the image data and write the end of the PNG
+	public void close() throws IOException {
+		this.idat.finish();
+		this.chunks.flush(); // the last, partial IDAT chunk
+		this.deflater.end();
+		writeChunk("IEND", new byte[0], 0);
+		this.out.close();
+		if (this.rowsWritten != this.height) {
+			throw new IOException("only " + this.rowsWritten + " of " + this.height + " rows were written");
+		}
+	}
+
+	// writes one chunk: length, type, data, CRC of type and data
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+
+		this.out.writeInt(length);
+		this.out.write(typeBytes);
+		this.out.write(data, 0, length);
+		this.out.writeInt((int) crc.getValue());
+	}
+
+	// collects deflated bytes and writes them out as IDAT chunks
+	private class IdatStream extends OutputStream {
+		private final byte[] buf = new byte[CHUNK_SIZE];
+		private int count;
+
+		public void write(int b) throws IOException {
+			this.buf[this.count++] = (byte) b;
+			if (this.count == CHUNK_SIZE) {
+				flush();
+			}
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, CHUNK_SIZE - this.count);
+				System.arraycopy(b, off, this.buf, this.count, n);
+				this.count += n;
+				off += n;
+				len -= n;
+				if (this.count == CHUNK_SIZE) {
+					flush();
+				}
+			}
+		}
+
+		public void flush() throws IOException {
+			if (this.count > 0) {
+				writeChunk("IDAT", this.buf, this.count);
+				this.count = 0;
+			}
+		}
+	}
+}
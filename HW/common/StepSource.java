@@ -0,0 +1,78 @@
+// StepSource.java
+// -- random move codes for lattice walkers, handed out in batches
+//    - a von Neumann move needs 2 random bits and a Moore move 3, so each 64-bit draw is cut into
+//      32 or 21 move codes instead of drawing a full int per step
+//    - both neighborhoods have a power-of-two number of moves, so every code is exactly uniform
+//    - draws come from SplitMix64 (the generator behind SplittableRandom); unlike java.util.Random
+//      it is not synchronised, so a source must not be shared between threads
+//    - used by the DrunkenWalk simulator, and kept here next to Neighborhood, whose move codes it
+//      draws (compile with -sourcepath ../common)
+
+public class StepSource {
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // SplitMix64 increment
+
+	private final int bits;     // bits per move code
+	private final long mask;    // low bits of one move code
+	private final int perDraw;  // move codes cut from one draw
+	private long state;         // SplitMix64 state
+	private long pending;       // unused move codes of the last draw, lowest first
+	private int pendingCount;   // number of codes left in pending
+
+	// constructors
+	// params:
+	// - Neighborhood neighborhood = codes are in [0,neighborhood.size()), whose size is a power of two
+	// - long seed = initial generator state; the same seed gives the same codes
+	public StepSource(Neighborhood neighborhood, long seed) {
+		if (Integer.bitCount(neighborhood.size()) != 1) {
+			throw new IllegalArgumentException("neighborhood size must be a power of two: " + neighborhood.size());
+		}
+		this.bits = neighborhood.bits();
+		this.mask = (1L << this.bits) - 1;
+		this.perDraw = 64/this.bits;
+		this.state = seed;
+	}
+
+	// methods
+	// ------------------------------------------------------------------
+	// next(): fill moves[0], ..., moves[count-1] with random move codes
+	public void next(byte[] moves, int count) {
+		int i = 0;
+
+		// finish the last draw first
+		while ((i < count) && (this.pendingCount > 0)) {
+			moves[i++] = (byte) (this.pending & this.mask);
+			this.pending >>>= this.bits;
+			this.pendingCount--;
+		}
+
+		// then whole draws
+		while (count - i >= this.perDraw) {
+			long draw = nextLong();
+			for (int k = 0; k < this.perDraw; k++) {
+				moves[i++] = (byte) (draw & this.mask);
+				draw >>>= this.bits;
+			}
+		}
+
+		// and keep what the last one leaves over
+		if (i < count) {
+			long draw = nextLong();
+			this.pendingCount = this.perDraw;
+			while (i < count) {
+				moves[i++] = (byte) (draw & this.mask);
+				draw >>>= this.bits;
+				this.pendingCount--;
+			}
+			this.pending = draw;
+		}
+	}
+
+	// ------------------------------------------------------------------
+	// nextLong(): returns the next 64 uniformly random bits
+	private long nextLong() {
+		long z = (this.state += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
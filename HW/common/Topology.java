@@ -0,0 +1,257 @@
+// Topology.java
+// -- how a lattice walker moves across the edges of a width x height plane
+//    - each topology is its own subclass with its own bulk move loops, so callers get
+//      a specialised loop without testing the topology on every step
+//    - wrap, clamp and reflect are arithmetic rather than branches, which keeps the
+//      loops free of unpredictable jumps
+//    - moves come from a Neighborhood, and are assumed to be at most one pixel along each axis
+//    - shared by the DrunkenWalk and Fractals simulators (compile with -sourcepath ../common)
+
+public abstract class Topology {
+	protected final int width;  // positions are in [0,width) x [0,height),
+	protected final int height; // except on the infinite plane
+	protected final int maxX;   // width - 1
+	protected final int maxY;   // height - 1
+
+	// constructors
+	protected Topology(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.maxX = width - 1;
+		this.maxY = height - 1;
+	}
+
+	// ------------------------------------------------------------------
+	// forName(): returns the topology called name on a width x height plane
+	// params:
+	// - String name = "infinite", "bounded", "toroid", "reflecting" or "klein"
+	// - int width = plane width, at least 2
+	// - int height = plane height, at least 2
+	public static Topology forName(String name, int width, int height) {
+		switch (name) {
+			case "infinite":   return new Infinite(width, height);
+			case "bounded":    return new Bounded(width, height);
+			case "toroid":     return new Toroid(width, height);
+			case "reflecting": return new Reflecting(width, height);
+			case "klein":      return new KleinBottle(width, height);
+			default:           throw new IllegalArgumentException("unknown topology: " + name);
+		}
+	}
+
+	// methods
+	public abstract String getName();
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	// ------------------------------------------------------------------
+	// isBounded(): returns whether positions always stay inside the plane
+	public boolean isBounded() {
+		return true;
+	}
+
+	// ---------------------------------------------------------------------------------
+	// step(): move each particle i in [from,to) by move code moves[i]
+	// params:
+	// - int[] xs, ys = particle positions, updated in place
+	// - byte[] moves = move codes, indexed like the particles
+	// - int from, to = range of particles to move
+	// - Neighborhood nb = offsets of the move codes
+	public abstract void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb);
+
+	// ---------------------------------------------------------------------------------
+	// walk(): move one walker from (x,y) by moves[0], ..., moves[count-1],
+	//         storing its position after each move
+	// params:
+	// - int x, y = start position
+	// - byte[] moves = move codes
+	// - int count = number of moves to take
+	// - Neighborhood nb = offsets of the move codes
+	// - int[] pathX, pathY = positions after each move, at [0,count)
+	public abstract void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY);
+
+	public String toString() {
+		return getName();
+	}
+
+	// ------------------------------------------------------------------
+	// clamp(): returns v limited to [0,max]
+	protected static int clamp(int v, int max) {
+		return Math.min(Math.max(v, 0), max);
+	}
+
+	// ------------------------------------------------------------------
+	// wrap(): returns v in [-1,size] wrapped into [0,size)
+	protected static int wrap(int v, int size) {
+		v += (v >> 31) & size;                      // -1 -> size-1
+		return v - (((size - 1 - v) >> 31) & size); // size -> 0
+	}
+
+	// ------------------------------------------------------------------
+	// reflect(): returns v in [-1,max+1] mirrored back into [0,max] (-1 -> 1, max+1 -> max-1)
+	protected static int reflect(int v, int max) {
+		return max - Math.abs(max - Math.abs(v));
+	}
+
+	//##################################################################
+
+	// infinite plane -
+	// let the walker go outside/through the boundaries
+	private static final class Infinite extends Topology {
+		Infinite(int width, int height) {
+			super(width, height);
+		}
+
+		public String getName() {
+			return "infinite";
+		}
+
+		public boolean isBounded() {
+			return false;
+		}
+
+		public void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb) {
+			for (int i = from; i < to; i++) {
+				xs[i] += nb.dx(moves[i]);
+				ys[i] += nb.dy(moves[i]);
+			}
+		}
+
+		public void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY) {
+			for (int i = 0; i < count; i++) {
+				x += nb.dx(moves[i]);
+				y += nb.dy(moves[i]);
+				pathX[i] = x;
+				pathY[i] = y;
+			}
+		}
+	}
+
+	// bounded plane -
+	// don't allow movement through boundaries,
+	// i.e., "bounce off walls" by staying put
+	private static final class Bounded extends Topology {
+		Bounded(int width, int height) {
+			super(width, height);
+		}
+
+		public String getName() {
+			return "bounded";
+		}
+
+		public void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb) {
+			for (int i = from; i < to; i++) {
+				xs[i] = clamp(xs[i] + nb.dx(moves[i]), this.maxX);
+				ys[i] = clamp(ys[i] + nb.dy(moves[i]), this.maxY);
+			}
+		}
+
+		public void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY) {
+			for (int i = 0; i < count; i++) {
+				x = clamp(x + nb.dx(moves[i]), this.maxX);
+				y = clamp(y + nb.dy(moves[i]), this.maxY);
+				pathX[i] = x;
+				pathY[i] = y;
+			}
+		}
+	}
+
+	// toroidal plane -
+	// connect top/bottom boundaries and left/right 
+	// note: opposite corners are connected as a result
+	private static final class Toroid extends Topology {
+		Toroid(int width, int height) {
+			super(width, height);
+		}
+
+		public String getName() {
+			return "toroid";
+		}
+
+		public void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb) {
+			for (int i = from; i < to; i++) {
+				xs[i] = wrap(xs[i] + nb.dx(moves[i]), this.width);
+				ys[i] = wrap(ys[i] + nb.dy(moves[i]), this.height);
+			}
+		}
+
+		public void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY) {
+			for (int i = 0; i < count; i++) {
+				x = wrap(x + nb.dx(moves[i]), this.width);
+				y = wrap(y + nb.dy(moves[i]), this.height);
+				pathX[i] = x;
+				pathY[i] = y;
+			}
+		}
+	}
+
+	// reflecting plane -
+	// a move through a wall is mirrored back off it,
+	// so the walker never stays put at the edge
+	private static final class Reflecting extends Topology {
+		Reflecting(int width, int height) {
+			super(width, height);
+		}
+
+		public String getName() {
+			return "reflecting";
+		}
+
+		public void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb) {
+			for (int i = from; i < to; i++) {
+				xs[i] = reflect(xs[i] + nb.dx(moves[i]), this.maxX);
+				ys[i] = reflect(ys[i] + nb.dy(moves[i]), this.maxY);
+			}
+		}
+
+		public void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY) {
+			for (int i = 0; i < count; i++) {
+				x = reflect(x + nb.dx(moves[i]), this.maxX);
+				y = reflect(y + nb.dy(moves[i]), this.maxY);
+				pathX[i] = x;
+				pathY[i] = y;
+			}
+		}
+	}
+
+	// Klein bottle -
+	// connect top/bottom boundaries as on the toroid, but connect left/right
+	// boundaries upside down: leaving through the left edge at y enters the
+	// right edge at height-1-y
+	private static final class KleinBottle extends Topology {
+		KleinBottle(int width, int height) {
+			super(width, height);
+		}
+
+		public String getName() {
+			return "klein";
+		}
+
+		public void step(int[] xs, int[] ys, byte[] moves, int from, int to, Neighborhood nb) {
+			for (int i = from; i < to; i++) {
+				int x = xs[i] + nb.dx(moves[i]);
+				int y = ys[i] + nb.dy(moves[i]);
+				int flip = (x >> 31) | ((this.maxX - x) >> 31); // -1 if x left the plane, 0 otherwise
+				xs[i] = wrap(x, this.width);
+				ys[i] = wrap(y + (flip & (this.maxY - 2*y)), this.height);
+			}
+		}
+
+		public void walk(int x, int y, byte[] moves, int count, Neighborhood nb, int[] pathX, int[] pathY) {
+			for (int i = 0; i < count; i++) {
+				x += nb.dx(moves[i]);
+				y += nb.dy(moves[i]);
+				int flip = (x >> 31) | ((this.maxX - x) >> 31); // -1 if x left the plane, 0 otherwise
+				x = wrap(x, this.width);
+				y = wrap(y + (flip & (this.maxY - 2*y)), this.height);
+				pathX[i] = x;
+				pathY[i] = y;
+			}
+		}
+	}
+}